@@ -1,18 +1,40 @@
 package com.conflictmediator;
 
+import com.conflictmediator.analysis.CapabilityAttachmentTracker;
+import com.conflictmediator.analysis.DatapackOverlapAnalyzer;
+import com.conflictmediator.analysis.DuplicateClassIndex;
+import com.conflictmediator.analysis.ModAttribution;
+import com.conflictmediator.analysis.RegistryCollisionDetector;
 import com.conflictmediator.api.ConflictModuleRegistry;
+import com.conflictmediator.command.ConflictMediatorCommands;
+import com.conflictmediator.core.ConfigWatcher;
+import com.conflictmediator.core.ConflictExporter;
+import com.conflictmediator.core.EmergencyAnalyzer;
 import com.conflictmediator.core.ErrorInterceptor;
+import com.conflictmediator.core.MediationDispatcher;
 import com.conflictmediator.core.MixinDisabler;
+import com.conflictmediator.core.ResolutionProfiles;
 import com.conflictmediator.gui.ConflictResolutionScreen;
+import com.conflictmediator.profiling.MixinCostExtension;
+import com.conflictmediator.profiling.StartupProfiler;
+import com.conflictmediator.profiling.TickSampler;
+import com.conflictmediator.profiling.TransformCostRecorder;
 import com.forgemodcomprfc.api.ModificationRegistry;
 import com.forgemodcomprfc.api.events.ConflictDetectedEvent;
 import com.forgemodcomprfc.api.ConflictResolver.ConflictResolution;
 import com.forgemodcomprfc.api.ConflictResolver.ResolutionStrategy;
 import com.forgemodcomprfc.manifest.ModificationManifest;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.AddReloadListenerEvent;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.server.ServerStartedEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
+import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.minecraftforge.fml.event.lifecycle.FMLLoadCompleteEvent;
+import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.minecraftforge.fml.loading.FMLLoader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -32,6 +54,19 @@ public class ConflictMediator {
     private final ErrorInterceptor errorInterceptor;
     private final MixinDisabler mixinDisabler;
     private final ConflictModuleRegistry moduleRegistry;
+    private final MediationDispatcher mediationDispatcher;
+    private final ModAttribution modAttribution;
+    private final StartupProfiler startupProfiler;
+    private final TickSampler tickSampler;
+    private final ResolutionProfiles resolutionProfiles;
+    private final RegistryCollisionDetector registryCollisionDetector;
+    private final CapabilityAttachmentTracker capabilityTracker;
+    private final DatapackOverlapAnalyzer datapackAnalyzer;
+    private final TransformCostRecorder transformCostRecorder;
+    private final ConflictExporter conflictExporter;
+    private final DuplicateClassIndex duplicateClassIndex;
+    private final EmergencyAnalyzer emergencyAnalyzer;
+    private final ConfigWatcher configWatcher;
     
     public ConflictMediator() {
         instance = this;
@@ -39,22 +74,60 @@ public class ConflictMediator {
         LOGGER.info("Инициализация Conflict Mediator Mod...");
         
         // Инициализация компонентов
+        this.modAttribution = new ModAttribution();
+        this.startupProfiler = new StartupProfiler(modAttribution);
+        this.emergencyAnalyzer = new EmergencyAnalyzer(modAttribution);
         this.mixinDisabler = new MixinDisabler();
         this.moduleRegistry = new ConflictModuleRegistry();
+        this.configWatcher = new ConfigWatcher(mixinDisabler, moduleRegistry);
+        this.resolutionProfiles = new ResolutionProfiles(mixinDisabler, moduleRegistry, modAttribution);
+        this.mediationDispatcher = new MediationDispatcher();
+        this.conflictExporter = new ConflictExporter(resolutionProfiles);
+        this.duplicateClassIndex = new DuplicateClassIndex();
         this.errorInterceptor = new ErrorInterceptor(this);
+        this.tickSampler = new TickSampler(modAttribution, errorInterceptor);
+        this.registryCollisionDetector = new RegistryCollisionDetector(modAttribution, errorInterceptor);
+        this.capabilityTracker = new CapabilityAttachmentTracker(modAttribution, errorInterceptor);
+        this.datapackAnalyzer = new DatapackOverlapAnalyzer(errorInterceptor);
+        this.transformCostRecorder = new TransformCostRecorder(mixinDisabler);
+        
+        // Профиль для этого модпака применяется до любого анализа
+        resolutionProfiles.applyMatching();
         
         // Регистрация обработчиков ошибок
+        emergencyAnalyzer.start();
+        conflictExporter.start();
         errorInterceptor.register();
         
+        // Индекс классов строится в фоне по хэшам jar из отпечатка модпака
+        resolutionProfiles.getFingerprintReady()
+            .thenAccept(fingerprint -> duplicateClassIndex.start(fingerprint, errorInterceptor));
+        
         // Регистрация событий
         MinecraftForge.EVENT_BUS.register(this);
         
+        // Отслеживание регистраций всех модов
+        registryCollisionDetector.register();
+        capabilityTracker.register();
+        
+        // Профилирование загрузки остальных модов
+        IEventBus modBus = FMLJavaModLoadingContext.get().getModEventBus();
+        startupProfiler.start(modBus);
+        
+        // Замер стоимости Mixin для классов, загружаемых после конструирования мода
+        MixinCostExtension.install(transformCostRecorder);
+        // События жизненного цикла идут по шине мода, а не по MinecraftForge.EVENT_BUS
+        modBus.addListener(this::onCommonSetup);
+        modBus.addListener(this::onLoadComplete);
+        
         LOGGER.info("Conflict Mediator Mod загружен");
     }
     
-    @SubscribeEvent
-    public void onCommonSetup(FMLCommonSetupEvent event) {
-        event.enqueueWork(() -> {
+    private void onCommonSetup(FMLCommonSetupEvent event) {
+        // Регистрация завершена: замены, не попавшие в окна модов, ищутся одним проходом
+        registryCollisionDetector.verify();
+        
+        event.enqueueWork(startupProfiler.timeWork(MOD_ID, () -> {
             // Загружаем манифест мода-медиатора (уровень GOLD)
             try {
                 InputStream manifestStream = getClass().getClassLoader()
@@ -71,12 +144,20 @@ public class ConflictMediator {
                 LOGGER.error("Ошибка при загрузке манифеста", e);
             }
             
-            // Загружаем сохраненные конфигурации отключений
-            mixinDisabler.loadBlacklist();
-            moduleRegistry.loadDisabledModules();
+            // Сохраненные конфигурации отключений загружены в applyMatching,
+            // дальнейшие правки файлов применяются без перезапуска
+            configWatcher.start();
             
             LOGGER.info("Конфигурации медиатора загружены");
-        });
+        }));
+    }
+    
+    private void onLoadComplete(FMLLoadCompleteEvent event) {
+        event.enqueueWork(transformCostRecorder::flush);
+        // Предупреждения загрузки Forge собраны полностью только к ее завершению
+        errorInterceptor.ingestLoadingWarnings();
+        // Конфликты загрузки уже разосланы - статистика слушателей отражает всю загрузку
+        mediationDispatcher.logStats();
     }
     
     /**
@@ -92,6 +173,30 @@ public class ConflictMediator {
         // Если не установлено разрешение, будет показан GUI
     }
     
+    @SubscribeEvent
+    public void onRegisterCommands(RegisterCommandsEvent event) {
+        ConflictMediatorCommands.register(event.getDispatcher());
+    }
+    
+    @SubscribeEvent
+    public void onAddReloadListener(AddReloadListenerEvent event) {
+        // Теги и таблицы добычи проверяются при каждой загрузке датапаков
+        event.addListener(datapackAnalyzer);
+    }
+    
+    @SubscribeEvent
+    public void onServerStarted(ServerStartedEvent event) {
+        // Сэмплер тиков включается только явно
+        if (TickSampler.ENABLED) {
+            tickSampler.start(event.getServer());
+        }
+    }
+    
+    @SubscribeEvent
+    public void onServerStopping(ServerStoppingEvent event) {
+        tickSampler.stop();
+    }
+    
     public static ConflictMediator getInstance() {
         return instance;
     }
@@ -107,4 +212,52 @@ public class ConflictMediator {
     public ConflictModuleRegistry getModuleRegistry() {
         return moduleRegistry;
     }
+    
+    public MediationDispatcher getMediationDispatcher() {
+        return mediationDispatcher;
+    }
+    
+    public ModAttribution getModAttribution() {
+        return modAttribution;
+    }
+    
+    public StartupProfiler getStartupProfiler() {
+        return startupProfiler;
+    }
+    
+    public TickSampler getTickSampler() {
+        return tickSampler;
+    }
+    
+    public ResolutionProfiles getResolutionProfiles() {
+        return resolutionProfiles;
+    }
+    
+    public RegistryCollisionDetector getRegistryCollisionDetector() {
+        return registryCollisionDetector;
+    }
+    
+    public CapabilityAttachmentTracker getCapabilityTracker() {
+        return capabilityTracker;
+    }
+    
+    public TransformCostRecorder getTransformCostRecorder() {
+        return transformCostRecorder;
+    }
+    
+    public ConflictExporter getConflictExporter() {
+        return conflictExporter;
+    }
+    
+    public DuplicateClassIndex getDuplicateClassIndex() {
+        return duplicateClassIndex;
+    }
+    
+    public EmergencyAnalyzer getEmergencyAnalyzer() {
+        return emergencyAnalyzer;
+    }
+    
+    public ConfigWatcher getConfigWatcher() {
+        return configWatcher;
+    }
 }
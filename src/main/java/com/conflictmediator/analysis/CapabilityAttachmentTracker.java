@@ -0,0 +1,212 @@
+package com.conflictmediator.analysis;
+
+import com.conflictmediator.core.ErrorInterceptor;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.common.capabilities.ICapabilityProvider;
+import net.minecraftforge.event.AttachCapabilitiesEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Отслеживание конфликтов присоединения Capability
+ *
+ * Для каждого типа цели (класса сущности, ItemStack, BlockEntity...) первые события
+ * составляют таблицу "ключ -> класс провайдера". После обучения таблица замораживается
+ * в массивы с открытой адресацией, и событие проверяется без выделения памяти.
+ * Только расхождение с таблицей уходит в медленный путь: новый ключ дополняет таблицу,
+ * а тот же ключ с провайдером другого мода сообщается как конфликт CAPABILITY.
+ */
+public class CapabilityAttachmentTracker {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int LEARNING_EVENTS = Integer.getInteger("conflictmediator.capabilities.learningEvents", 64);
+
+    private final ModAttribution attribution;
+    private final ErrorInterceptor errorInterceptor;
+
+    private final ClassValue<TypeTable> tables = new ClassValue<>() {
+        @Override
+        protected TypeTable computeValue(Class<?> type) {
+            return new TypeTable(type);
+        }
+    };
+
+    private final ThreadLocal<Checker> checkers = ThreadLocal.withInitial(Checker::new);
+
+    public CapabilityAttachmentTracker(ModAttribution attribution, ErrorInterceptor errorInterceptor) {
+        this.attribution = attribution;
+        this.errorInterceptor = errorInterceptor;
+    }
+
+    /**
+     * Подписка на события присоединения Capability для всех типов целей
+     */
+    public void register() {
+        MinecraftForge.EVENT_BUS.addGenericListener(Entity.class, EventPriority.LOWEST,
+            (AttachCapabilitiesEvent<Entity> event) -> onAttach(event));
+        MinecraftForge.EVENT_BUS.addGenericListener(ItemStack.class, EventPriority.LOWEST,
+            (AttachCapabilitiesEvent<ItemStack> event) -> onAttach(event));
+        MinecraftForge.EVENT_BUS.addGenericListener(BlockEntity.class, EventPriority.LOWEST,
+            (AttachCapabilitiesEvent<BlockEntity> event) -> onAttach(event));
+        MinecraftForge.EVENT_BUS.addGenericListener(Level.class, EventPriority.LOWEST,
+            (AttachCapabilitiesEvent<Level> event) -> onAttach(event));
+        MinecraftForge.EVENT_BUS.addGenericListener(LevelChunk.class, EventPriority.LOWEST,
+            (AttachCapabilitiesEvent<LevelChunk> event) -> onAttach(event));
+    }
+
+    private void onAttach(AttachCapabilitiesEvent<?> event) {
+        Map<ResourceLocation, ICapabilityProvider> capabilities = event.getCapabilities();
+        if (capabilities.isEmpty()) return;
+
+        TypeTable table = tables.get(event.getObject().getClass());
+        FrozenTable frozen = table.frozen;
+        if (frozen != null) {
+            // Быстрый путь: все ключи и классы провайдеров совпадают с таблицей
+            Checker checker = checkers.get();
+            checker.reset(frozen);
+            capabilities.forEach(checker);
+            if (!checker.mismatch) return;
+        }
+
+        List<DetectedConflict> conflicts = table.learn(capabilities);
+        if (conflicts != null) {
+            errorInterceptor.reportConflicts(conflicts, "Присоединение Capability к " + table.type.getName());
+        }
+    }
+
+    /**
+     * Таблица ключей для одного типа цели
+     */
+    private final class TypeTable {
+        final Class<?> type;
+        final Map<ResourceLocation, List<Class<?>>> providers = new HashMap<>();
+        final Set<String> reported = new HashSet<>();
+        volatile FrozenTable frozen;
+        int events = 0;
+
+        TypeTable(Class<?> type) {
+            this.type = type;
+        }
+
+        /**
+         * Медленный путь: обучение и поиск новых коллизий
+         */
+        synchronized List<DetectedConflict> learn(Map<ResourceLocation, ICapabilityProvider> capabilities) {
+            List<DetectedConflict> conflicts = null;
+            boolean changed = false;
+
+            for (Map.Entry<ResourceLocation, ICapabilityProvider> entry : capabilities.entrySet()) {
+                ResourceLocation key = entry.getKey();
+                Class<?> providerClass = entry.getValue().getClass();
+                List<Class<?>> known = providers.computeIfAbsent(key, k -> new ArrayList<>(1));
+                if (known.contains(providerClass)) continue;
+
+                for (Class<?> knownClass : known) {
+                    DetectedConflict conflict = checkCollision(key, knownClass, providerClass);
+                    if (conflict != null) {
+                        if (conflicts == null) conflicts = new ArrayList<>();
+                        conflicts.add(conflict);
+                    }
+                }
+                known.add(providerClass);
+                changed = true;
+            }
+
+            events++;
+            if (events >= LEARNING_EVENTS && (frozen == null || changed)) {
+                frozen = new FrozenTable(providers);
+            }
+            return conflicts;
+        }
+
+        private DetectedConflict checkCollision(ResourceLocation key, Class<?> known, Class<?> providerClass) {
+            String knownMod = attribution.modIdOf(known.getName());
+            String newMod = attribution.modIdOf(providerClass.getName());
+            // Разные классы провайдеров одного мода - не конфликт
+            if (Objects.equals(knownMod, newMod)) return null;
+            if (!reported.add(key + "|" + newMod)) return null;
+
+            LOGGER.warn("Capability {} на {} присоединяется модами {} ({}) и {} ({})",
+                key, type.getName(), knownMod, known.getName(), newMod, providerClass.getName());
+            return new DetectedConflict(
+                DetectedConflict.ConflictType.CAPABILITY,
+                knownMod != null ? knownMod : key.getNamespace(),
+                newMod != null ? newMod : "unknown",
+                "Ключ Capability " + key + " присоединяется к " + type.getSimpleName() + " разными модами",
+                "Провайдеры: " + known.getName() + " и " + providerClass.getName()
+            );
+        }
+    }
+
+    /**
+     * Замороженная таблица ключей с открытой адресацией
+     */
+    private static final class FrozenTable {
+        final ResourceLocation[] keys;
+        final Class<?>[][] providerClasses;
+        final int mask;
+
+        FrozenTable(Map<ResourceLocation, List<Class<?>>> providers) {
+            int capacity = Integer.highestOneBit(Math.max(8, providers.size() * 2) - 1) << 1;
+            keys = new ResourceLocation[capacity];
+            providerClasses = new Class<?>[capacity][];
+            mask = capacity - 1;
+            for (Map.Entry<ResourceLocation, List<Class<?>>> entry : providers.entrySet()) {
+                int slot = mix(entry.getKey().hashCode()) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = entry.getKey();
+                providerClasses[slot] = entry.getValue().toArray(new Class<?>[0]);
+            }
+        }
+
+        boolean matches(ResourceLocation key, Class<?> providerClass) {
+            int slot = mix(key.hashCode()) & mask;
+            ResourceLocation existing;
+            while ((existing = keys[slot]) != null) {
+                if (existing == key || existing.equals(key)) {
+                    for (Class<?> known : providerClasses[slot]) {
+                        if (known == providerClass) return true;
+                    }
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Проверка ключей события по замороженной таблице, переиспользуется потоком
+     */
+    private static final class Checker implements BiConsumer<ResourceLocation, ICapabilityProvider> {
+        FrozenTable table;
+        boolean mismatch;
+
+        void reset(FrozenTable table) {
+            this.table = table;
+            this.mismatch = false;
+        }
+
+        @Override
+        public void accept(ResourceLocation key, ICapabilityProvider provider) {
+            if (!mismatch && !table.matches(key, provider.getClass())) {
+                mismatch = true;
+            }
+        }
+    }
+}
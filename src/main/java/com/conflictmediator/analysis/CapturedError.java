@@ -0,0 +1,136 @@
+package com.conflictmediator.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Компактный снимок ошибки
+ *
+ * Хранит цепочку причин как массив записей со ссылкой на причину по индексу,
+ * а стектрейсы - как массивы идентификаторов кадров {@link FrameDictionary}.
+ * После захвата исходный Throwable (и весь граф объектов, на который он ссылается)
+ * может быть освобожден.
+ */
+public class CapturedError {
+    // Индекс отсутствующей причины
+    public static final int NO_CAUSE = -1;
+
+    private final FrameDictionary dictionary;
+    private final Entry[] entries;
+
+    private CapturedError(FrameDictionary dictionary, Entry[] entries) {
+        this.dictionary = dictionary;
+        this.entries = entries;
+    }
+
+    /**
+     * Захват ошибки и всей цепочки причин
+     */
+    public static CapturedError capture(Throwable error, FrameDictionary dictionary) {
+        List<Entry> entries = new ArrayList<>();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Throwable current = error;
+        while (current != null && seen.add(current)) {
+            StackTraceElement[] stackTrace = current.getStackTrace();
+            int[] frames = new int[stackTrace.length];
+            for (int i = 0; i < stackTrace.length; i++) {
+                frames[i] = dictionary.internFrame(stackTrace[i]);
+            }
+
+            Throwable cause = current.getCause();
+            int causeIndex = cause != null && !seen.contains(cause) ? entries.size() + 1 : NO_CAUSE;
+            entries.add(new Entry(
+                dictionary.internString(current.getClass().getName()),
+                current.getMessage(),
+                frames,
+                causeIndex
+            ));
+            current = cause;
+        }
+        return new CapturedError(dictionary, entries.toArray(new Entry[0]));
+    }
+
+    /**
+     * Имя класса исключения верхнего уровня
+     */
+    public String getExceptionClassName() {
+        return entries.length == 0 ? null : dictionary.getString(entries[0].classId);
+    }
+
+    /**
+     * Сообщение исключения верхнего уровня
+     */
+    public String getMessage() {
+        return entries.length == 0 ? null : entries[0].message;
+    }
+
+    /**
+     * Количество записей в цепочке причин
+     */
+    public int getEntryCount() {
+        return entries.length;
+    }
+
+    /**
+     * Восстановленный стектрейс записи цепочки
+     */
+    public StackTraceElement[] getStackTrace(int entryIndex) {
+        int[] frames = entries[entryIndex].frames;
+        StackTraceElement[] result = new StackTraceElement[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            result[i] = dictionary.toElement(frames[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Идентификаторы кадров записи цепочки
+     */
+    public int[] getFrameIds(int entryIndex) {
+        return entries[entryIndex].frames.clone();
+    }
+
+    /**
+     * Индекс причины записи или {@link #NO_CAUSE}
+     */
+    public int getCauseIndex(int entryIndex) {
+        return entries[entryIndex].causeIndex;
+    }
+
+    /**
+     * Текст в формате printStackTrace
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        int index = entries.length == 0 ? NO_CAUSE : 0;
+        while (index != NO_CAUSE) {
+            Entry entry = entries[index];
+            if (index > 0) sb.append("Caused by: ");
+            sb.append(dictionary.getString(entry.classId));
+            if (entry.message != null) sb.append(": ").append(entry.message);
+            sb.append(System.lineSeparator());
+            for (int frame : entry.frames) {
+                sb.append("\tat ").append(dictionary.toElement(frame)).append(System.lineSeparator());
+            }
+            index = entry.causeIndex;
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        String className = getExceptionClassName();
+        String message = getMessage();
+        return message == null ? String.valueOf(className) : className + ": " + message;
+    }
+
+    /**
+     * Запись цепочки причин
+     */
+    private record Entry(int classId, String message, int[] frames, int causeIndex) {
+    }
+}
@@ -6,7 +6,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,6 +33,17 @@ public class ConflictAnalyzer {
         Pattern.CASE_INSENSITIVE
     );
     
+    // Порог, ниже которого пакет ошибок анализируется в текущем потоке
+    private static final int BATCH_THRESHOLD = 4;
+    
+    private final ModAttribution attribution;
+    private final DuplicateClassIndex duplicateClasses;
+    
+    public ConflictAnalyzer(ModAttribution attribution, DuplicateClassIndex duplicateClasses) {
+        this.attribution = attribution;
+        this.duplicateClasses = duplicateClasses;
+    }
+    
     /**
      * Анализ ошибки и поиск конфликтов
      */
@@ -56,6 +72,64 @@ public class ConflictAnalyzer {
         return conflicts;
     }
     
+    /**
+     * Параллельный анализ пакета ошибок с объединением и дедупликацией конфликтов
+     */
+    public List<DetectedConflict> analyzeBatch(Collection<? extends Throwable> errors) {
+        List<Throwable> list = new ArrayList<>(errors);
+        if (list.isEmpty()) return new ArrayList<>();
+        
+        // Индекс владельцев строится один раз до распараллеливания
+        attribution.ensureBuilt();
+        Map<String, DetectedConflict> merged = ForkJoinPool.commonPool()
+            .invoke(new BatchTask(list, 0, list.size()));
+        return new ArrayList<>(merged.values());
+    }
+    
+    /**
+     * Задача fork-join: анализ диапазона ошибок пакета
+     */
+    private class BatchTask extends RecursiveTask<Map<String, DetectedConflict>> {
+        private final List<Throwable> errors;
+        private final int from;
+        private final int to;
+        
+        BatchTask(List<Throwable> errors, int from, int to) {
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected Map<String, DetectedConflict> compute() {
+            if (to - from <= BATCH_THRESHOLD) {
+                Map<String, DetectedConflict> result = new LinkedHashMap<>();
+                for (int i = from; i < to; i++) {
+                    try {
+                        merge(result, analyzeError(errors.get(i)));
+                    } catch (Exception e) {
+                        LOGGER.warn("Не удалось проанализировать ошибку пакета", e);
+                    }
+                }
+                return result;
+            }
+            
+            int middle = (from + to) >>> 1;
+            BatchTask left = new BatchTask(errors, from, middle);
+            left.fork();
+            Map<String, DetectedConflict> right = new BatchTask(errors, middle, to).compute();
+            Map<String, DetectedConflict> result = left.join();
+            merge(result, right.values());
+            return result;
+        }
+    }
+    
+    private static void merge(Map<String, DetectedConflict> target, Collection<DetectedConflict> conflicts) {
+        for (DetectedConflict conflict : conflicts) {
+            target.putIfAbsent(conflict.getIdentityKey(), conflict);
+        }
+    }
+    
     /**
      * Анализ сообщения об ошибке
      */
@@ -86,6 +160,18 @@ public class ConflictAnalyzer {
             }
         }
         
+        // Повторное присоединение Capability с тем же ключом
+        if (message.contains("Duplicate Capability Key")) {
+            conflicts.add(new DetectedConflict(
+                DetectedConflict.ConflictType.CAPABILITY,
+                extractNamespaceFromCapabilityMessage(message),
+                extractFirstModFromStackTrace(stackTrace),
+                "Повторное присоединение ключа Capability",
+                message
+            ));
+            return conflicts;
+        }
+        
         // Поиск упоминаний дублирующихся методов
         if (message.contains("duplicate") || message.contains("already exists")) {
             conflicts.add(new DetectedConflict(
@@ -106,10 +192,30 @@ public class ConflictAnalyzer {
     private List<DetectedConflict> analyzeStackTrace(StackTraceElement[] stackTrace) {
         List<DetectedConflict> conflicts = new ArrayList<>();
         List<String> foundMods = new ArrayList<>();
+        List<String> duplicatedClasses = new ArrayList<>();
         
         for (StackTraceElement element : stackTrace) {
             String className = element.getClassName();
             
+            // Класс из нескольких jar (например, встроенная библиотека) не указывает на мод:
+            // сообщаем сами jar, а не пару случайных модов
+            List<String> jars = duplicateClasses.jarsOf(className);
+            if (jars != null) {
+                if (!duplicatedClasses.contains(className)) {
+                    duplicatedClasses.add(className);
+                    List<String> mods = duplicateClasses.modsOf(className);
+                    String loaded = element.getModuleName() != null ? ", загружена копия из " + element.getModuleName() : "";
+                    conflicts.add(new DetectedConflict(
+                        DetectedConflict.ConflictType.DUPLICATE_CLASS,
+                        mods.get(0),
+                        mods.get(1),
+                        "Класс " + className + " упакован в " + String.join(", ", jars) + loaded,
+                        "Обнаружено в стектрейсе"
+                    ));
+                }
+                continue;
+            }
+            
             // Ищем modid в имени класса
             String modid = extractModidFromClassName(className);
             if (modid != null && !foundMods.contains(modid)) {
@@ -154,6 +260,12 @@ public class ConflictAnalyzer {
      * Извлечение modid из имени класса
      */
     private String extractModidFromClassName(String className) {
+        // Сначала ищем владельца пакета по данным сканирования модов
+        String owner = attribution.modIdOf(className);
+        if (owner != null) {
+            return owner;
+        }
+        
         // Проверяем, есть ли этот мод в списке загруженных
         for (String modid : ModList.get().getMods().stream()
             .map(mod -> mod.getModId())
@@ -166,6 +278,29 @@ public class ConflictAnalyzer {
         return null;
     }
     
+    /**
+     * Пространство имен ключа из сообщения "Duplicate Capability Key: namespace:path ..."
+     */
+    private String extractNamespaceFromCapabilityMessage(String message) {
+        int start = message.indexOf(':') + 1;
+        while (start < message.length() && message.charAt(start) == ' ') start++;
+        int colon = message.indexOf(':', start);
+        return colon > start ? message.substring(start, colon) : "unknown";
+    }
+    
+    /**
+     * Первый мод вне платформы в стектрейсе
+     */
+    private String extractFirstModFromStackTrace(StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            int index = attribution.modIndexOf(element.getClassName());
+            if (index != ModAttribution.UNKNOWN && !attribution.isPlatform(index)) {
+                return attribution.modId(index);
+            }
+        }
+        return "unknown";
+    }
+    
     /**
      * Извлечение modid из элемента стектрейса
      */
@@ -0,0 +1,338 @@
+package com.conflictmediator.analysis;
+
+import com.conflictmediator.core.ErrorInterceptor;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.SimplePreparableReloadListener;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.forgespi.language.IModFileInfo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Анализ пересечений тегов и таблиц добычи при перезагрузке датапаков
+ *
+ * Для каждого файла тега или таблицы добычи собираются все источники: паки из стека
+ * ресурсов и, для общего пака ресурсов модов, конкретные jar-файлы модов.
+ * Тег с "replace": true, перекрывающий значения другого источника, и таблица добычи,
+ * предоставленная несколькими источниками, сообщаются как конфликты.
+ *
+ * Анализ инкрементальный: для каждого пространства имен вычисляется подпись по списку
+ * файлов и паков-источников и содержимому файлов из паков вне jar (датапаки мира),
+ * и заново анализируются только изменившиеся пространства имен.
+ */
+public class DatapackOverlapAnalyzer extends SimplePreparableReloadListener<List<DetectedConflict>> {
+    private static final Logger LOGGER = LogManager.getLogger();
+    // Forge объединяет ресурсы всех модов в один пак
+    private static final String MOD_RESOURCES_PACK = "mod_resources";
+    private static final String TAGS_DIR = "tags";
+    private static final List<String> LOOT_TABLE_DIRS = List.of("loot_table", "loot_tables");
+    // Источники платформы: их перезапись модом - штатное переопределение, а не конфликт
+    private static final Set<String> PLATFORM_SOURCES = Set.of("minecraft", "forge");
+
+    private final ErrorInterceptor errorInterceptor;
+    private final Map<String, NamespaceResult> cache = new ConcurrentHashMap<>();
+    private volatile Map<ResourceLocation, List<Contribution>> modData;
+
+    public DatapackOverlapAnalyzer(ErrorInterceptor errorInterceptor) {
+        this.errorInterceptor = errorInterceptor;
+    }
+
+    @Override
+    protected List<DetectedConflict> prepare(ResourceManager resourceManager, ProfilerFiller profiler) {
+        long start = System.nanoTime();
+        Map<String, NamespaceResources> namespaces = new HashMap<>();
+
+        resourceManager.listResourceStacks(TAGS_DIR, location -> location.getPath().endsWith(".json"))
+            .forEach((location, stack) -> namespaces
+                .computeIfAbsent(location.getNamespace(), NamespaceResources::new).tags.put(location, stack));
+        for (String dir : LOOT_TABLE_DIRS) {
+            resourceManager.listResourceStacks(dir, location -> location.getPath().endsWith(".json"))
+                .forEach((location, stack) -> namespaces
+                    .computeIfAbsent(location.getNamespace(), NamespaceResources::new).lootTables.put(location, stack));
+        }
+
+        // Подписи включают хэши содержимого датапаков мира, поэтому считаются параллельно
+        namespaces.values().parallelStream().forEach(NamespaceResources::computeSignature);
+
+        // Заново анализируются только пространства имен с изменившимся составом или содержимым
+        List<NamespaceResources> changed = new ArrayList<>();
+        for (NamespaceResources resources : namespaces.values()) {
+            NamespaceResult cached = cache.get(resources.namespace);
+            if (cached == null || cached.signature != resources.signature) {
+                changed.add(resources);
+            }
+        }
+        cache.keySet().retainAll(namespaces.keySet());
+
+        List<DetectedConflict> newConflicts = Collections.synchronizedList(new ArrayList<>());
+        if (!changed.isEmpty()) {
+            Map<ResourceLocation, List<Contribution>> modSources = modData();
+            changed.parallelStream().forEach(resources -> {
+                List<DetectedConflict> conflicts = analyzeNamespace(resources, modSources);
+                cache.put(resources.namespace, new NamespaceResult(resources.signature, conflicts));
+                newConflicts.addAll(conflicts);
+            });
+        }
+
+        LOGGER.debug("Анализ датапаков: {} пространств имен, изменилось {}, конфликтов {}, {} мс",
+            namespaces.size(), changed.size(), newConflicts.size(), (System.nanoTime() - start) / 1_000_000);
+        return new ArrayList<>(newConflicts);
+    }
+
+    @Override
+    protected void apply(List<DetectedConflict> conflicts, ResourceManager resourceManager, ProfilerFiller profiler) {
+        if (!conflicts.isEmpty()) {
+            errorInterceptor.reportConflicts(conflicts, "Перезагрузка датапаков");
+        }
+    }
+
+    private List<DetectedConflict> analyzeNamespace(NamespaceResources resources,
+                                                   Map<ResourceLocation, List<Contribution>> modSources) {
+        List<DetectedConflict> conflicts = new ArrayList<>();
+
+        for (Map.Entry<ResourceLocation, List<Resource>> entry : resources.lootTables.entrySet()) {
+            List<Contribution> contributions = contributions(entry.getKey(), entry.getValue(), modSources);
+            List<String> sources = distinctSources(contributions);
+            sources.removeAll(PLATFORM_SOURCES);
+            if (sources.size() >= 2) {
+                conflicts.add(new DetectedConflict(
+                    DetectedConflict.ConflictType.LOOT_TABLE,
+                    sources.get(0),
+                    sources.get(sources.size() - 1),
+                    "Таблица добычи " + entry.getKey() + " перезаписывается: " + String.join(", ", sources),
+                    "Обнаружено при перезагрузке датапаков"
+                ));
+            }
+        }
+
+        for (Map.Entry<ResourceLocation, List<Resource>> entry : resources.tags.entrySet()) {
+            List<Contribution> contributions = contributions(entry.getKey(), entry.getValue(), modSources);
+            if (distinctSources(contributions).size() < 2) continue;
+            DetectedConflict conflict = analyzeTag(entry.getKey(), contributions);
+            if (conflict != null) {
+                conflicts.add(conflict);
+            }
+        }
+        return conflicts;
+    }
+
+    private DetectedConflict analyzeTag(ResourceLocation location, List<Contribution> contributions) {
+        List<TagFile> files = new ArrayList<>(contributions.size());
+        for (Contribution contribution : contributions) {
+            try (InputStream in = contribution.opener().open();
+                 Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+                JsonElement replace = json.get("replace");
+                int values = json.has("values") ? json.getAsJsonArray("values").size() : 0;
+                files.add(new TagFile(contribution.source(), replace != null && replace.getAsBoolean(), values));
+            } catch (Exception e) {
+                LOGGER.debug("Не удалось прочитать тег {} из {}", location, contribution.source(), e);
+            }
+        }
+
+        // replace: true отбрасывает значения всех источников, загруженных раньше
+        for (int i = 1; i < files.size(); i++) {
+            TagFile replacing = files.get(i);
+            if (!replacing.replace) continue;
+            for (int j = 0; j < i; j++) {
+                TagFile replaced = files.get(j);
+                if (!replaced.source.equals(replacing.source) && replaced.values > 0) {
+                    return new DetectedConflict(
+                        DetectedConflict.ConflictType.TAG,
+                        replaced.source,
+                        replacing.source,
+                        "Тег " + location + " заменяется (replace) источником " + replacing.source
+                            + ", значения " + replaced.source + " отбрасываются",
+                        "Обнаружено при перезагрузке датапаков"
+                    );
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Источники файла: паки стека, общий пак модов раскрывается до отдельных модов
+     */
+    private List<Contribution> contributions(ResourceLocation location, List<Resource> stack,
+                                             Map<ResourceLocation, List<Contribution>> modSources) {
+        List<Contribution> result = new ArrayList<>(stack.size());
+        for (Resource resource : stack) {
+            String packId = resource.sourcePackId();
+            List<Contribution> mods = MOD_RESOURCES_PACK.equals(packId) ? modSources.get(location) : null;
+            if (mods != null && !mods.isEmpty()) {
+                result.addAll(mods);
+            } else {
+                result.add(new Contribution(sourceName(packId), resource::open));
+            }
+        }
+        return result;
+    }
+
+    private static List<String> distinctSources(List<Contribution> contributions) {
+        List<String> sources = new ArrayList<>(contributions.size());
+        for (Contribution contribution : contributions) {
+            if (!sources.contains(contribution.source())) {
+                sources.add(contribution.source());
+            }
+        }
+        return sources;
+    }
+
+    private static String sourceName(String packId) {
+        return "vanilla".equals(packId) ? "minecraft" : packId;
+    }
+
+    /**
+     * Индекс файлов тегов и таблиц добычи в jar-файлах модов (строится один раз)
+     */
+    private Map<ResourceLocation, List<Contribution>> modData() {
+        Map<ResourceLocation, List<Contribution>> index = modData;
+        if (index != null) return index;
+        synchronized (this) {
+            if (modData != null) return modData;
+            // Файлы просматриваются параллельно, но объединяются последовательно в порядке ModList:
+            // порядок источников определяет, чьи значения отбрасывает replace
+            List<Map<ResourceLocation, Contribution>> perFile = ModList.get().getModFiles().parallelStream()
+                .map(this::indexModFile)
+                .toList();
+            Map<ResourceLocation, List<Contribution>> built = new HashMap<>();
+            for (Map<ResourceLocation, Contribution> fileIndex : perFile) {
+                fileIndex.forEach((location, contribution) ->
+                    built.computeIfAbsent(location, k -> new ArrayList<>(2)).add(contribution));
+            }
+            modData = built;
+            return built;
+        }
+    }
+
+    private Map<ResourceLocation, Contribution> indexModFile(IModFileInfo fileInfo) {
+        Map<ResourceLocation, Contribution> index = new TreeMap<>();
+        if (fileInfo.getMods().isEmpty()) return index;
+        String modid = fileInfo.getMods().get(0).getModId();
+        Path dataRoot = fileInfo.getFile().findResource("data");
+        if (!Files.isDirectory(dataRoot)) return index;
+
+        try (Stream<Path> namespaces = Files.list(dataRoot)) {
+            for (Path namespaceDir : namespaces.toList()) {
+                String namespace = fileName(namespaceDir);
+                indexDirectory(index, modid, namespace, namespaceDir, TAGS_DIR);
+                for (String dir : LOOT_TABLE_DIRS) {
+                    indexDirectory(index, modid, namespace, namespaceDir, dir);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Не удалось просмотреть данные мода {}", modid, e);
+        }
+        return index;
+    }
+
+    private void indexDirectory(Map<ResourceLocation, Contribution> index, String modid,
+                                String namespace, Path namespaceDir, String dir) throws IOException {
+        Path root = namespaceDir.resolve(dir);
+        if (!Files.isDirectory(root)) return;
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(path -> fileName(path).endsWith(".json")).forEach(path -> {
+                String relative = dir + "/" + root.relativize(path).toString().replace('\\', '/');
+                ResourceLocation location = ResourceLocation.tryBuild(namespace, relative);
+                if (location == null) return;
+                index.put(location, new Contribution(modid, () -> Files.newInputStream(path)));
+            });
+        }
+    }
+
+    private static String fileName(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    /**
+     * Ресурсы одного пространства имен
+     */
+    private static final class NamespaceResources {
+        final String namespace;
+        final Map<ResourceLocation, List<Resource>> tags = new TreeMap<>();
+        final Map<ResourceLocation, List<Resource>> lootTables = new TreeMap<>();
+        long signature;
+
+        NamespaceResources(String namespace) {
+            this.namespace = namespace;
+        }
+
+        /**
+         * Подпись: файлы и паки-источники в порядке загрузки, для паков вне jar - хэш содержимого
+         */
+        void computeSignature() {
+            long hash = namespace.hashCode();
+            hash = hash(hash, tags);
+            hash = hash(hash, lootTables);
+            signature = hash;
+        }
+
+        private static long hash(long hash, Map<ResourceLocation, List<Resource>> resources) {
+            for (Map.Entry<ResourceLocation, List<Resource>> entry : resources.entrySet()) {
+                hash = 31 * hash + entry.getKey().hashCode();
+                for (Resource resource : entry.getValue()) {
+                    hash = 31 * hash + resource.sourcePackId().hashCode();
+                    if (!isJarPack(resource.sourcePackId())) {
+                        hash = 31 * hash + contentHash(resource);
+                    }
+                }
+            }
+            return hash;
+        }
+
+        /**
+         * Содержимое jar не меняется до перезапуска, меняются только датапаки мира и ресурс-паки
+         */
+        private static boolean isJarPack(String packId) {
+            return MOD_RESOURCES_PACK.equals(packId) || "vanilla".equals(packId);
+        }
+
+        private static long contentHash(Resource resource) {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[8192];
+            try (InputStream in = resource.open()) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                return -1;
+            }
+            return crc.getValue();
+        }
+    }
+
+    private record NamespaceResult(long signature, List<DetectedConflict> conflicts) {
+    }
+
+    private record Contribution(String source, Opener opener) {
+    }
+
+    private record TagFile(String source, boolean replace, int values) {
+    }
+
+    @FunctionalInterface
+    private interface Opener {
+        InputStream open() throws IOException;
+    }
+}
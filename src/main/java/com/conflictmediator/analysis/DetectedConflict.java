@@ -10,6 +10,10 @@ public class DetectedConflict {
         FIELD,          // Конфликт полей
         REGISTRY,       // Конфликт реестра
         CAPABILITY,     // Конфликт Capability
+        PERFORMANCE,    // Подозрение на конфликт производительности
+        TAG,            // Конфликт тегов датапаков
+        LOOT_TABLE,     // Перезапись таблицы добычи
+        DUPLICATE_CLASS, // Класс или пакет в нескольких jar
         UNKNOWN         // Неизвестный тип конфликта
     }
     
@@ -66,6 +70,20 @@ public class DetectedConflict {
         this.mixinClass2 = mixinClass2;
     }
     
+    /**
+     * Ключ для дедупликации: тип, неупорядоченная пара модов и классы Mixin
+     */
+    public String getIdentityKey() {
+        String first = String.valueOf(mod1);
+        String second = String.valueOf(mod2);
+        if (first.compareTo(second) > 0) {
+            String tmp = first;
+            first = second;
+            second = tmp;
+        }
+        return type + "|" + first + "|" + second + "|" + mixinClass1 + "|" + mixinClass2;
+    }
+    
     @Override
     public String toString() {
         return String.format("Conflict[%s] между %s и %s: %s", 
@@ -0,0 +1,294 @@
+package com.conflictmediator.analysis;
+
+import com.conflictmediator.core.ErrorInterceptor;
+import com.conflictmediator.core.ModpackFingerprint;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.forgespi.language.IModFileInfo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Индекс классов, упакованных в несколько jar-файлов модов
+ *
+ * Списки классов читаются из центрального каталога каждого jar ({@link ZipFile}) параллельно,
+ * без распаковки и загрузки классов. Из какой копии класс будет загружен, зависит от порядка
+ * загрузки, поэтому дублирующиеся классы и разделенные пакеты сообщаются как конфликты.
+ *
+ * Списки классов кэшируются между запусками по SHA-256 jar из {@link ModpackFingerprint}
+ * в сжатом двоичном файле: для крупных модпаков это сотни тысяч имен.
+ * Моды из каталогов (среда разработки) не индексируются.
+ */
+public class DuplicateClassIndex {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Path CACHE_FILE = FMLPaths.CONFIGDIR.get().resolve("conflict_mediator_class_index.bin");
+    private static final int CACHE_MAGIC = 0x434D4349; // "CMCI"
+    private static final int CACHE_VERSION = 1;
+    // Сколько имен классов приводится в описании конфликта
+    private static final int SAMPLE_CLASSES = 3;
+
+    private volatile Index index = Index.EMPTY;
+
+    /**
+     * Построение индекса в фоновом потоке; найденные дубликаты сообщаются как конфликты
+     */
+    public void start(ModpackFingerprint fingerprint, ErrorInterceptor errorInterceptor) {
+        if (fingerprint == null) return;
+        Thread thread = new Thread(() -> {
+            try {
+                List<DetectedConflict> conflicts = build(fingerprint);
+                errorInterceptor.reportConflicts(conflicts, "Индекс классов модов");
+            } catch (Exception e) {
+                LOGGER.warn("Не удалось построить индекс классов модов", e);
+            }
+        }, "conflict-mediator-class-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * jar-файлы, содержащие класс, если класс упакован в несколько jar, иначе null
+     */
+    public List<String> jarsOf(String className) {
+        int[] jars = index.duplicates.get(className);
+        if (jars == null) return null;
+        List<String> names = new ArrayList<>(jars.length);
+        for (int jar : jars) {
+            names.add(index.jars[jar].name());
+        }
+        return names;
+    }
+
+    /**
+     * Моды jar-файлов, содержащих класс, если класс упакован в несколько jar, иначе null
+     */
+    public List<String> modsOf(String className) {
+        int[] jars = index.duplicates.get(className);
+        if (jars == null) return null;
+        List<String> mods = new ArrayList<>(jars.length);
+        for (int jar : jars) {
+            mods.add(index.jars[jar].modid());
+        }
+        return mods;
+    }
+
+    public boolean isBuilt() {
+        return index != Index.EMPTY;
+    }
+
+    private List<DetectedConflict> build(ModpackFingerprint fingerprint) {
+        long start = System.nanoTime();
+        Map<String, List<String>> cache = loadCache();
+        Map<Path, String> hashes = fingerprint.getJarHashes();
+
+        List<JarInfo> jarList = new ArrayList<>();
+        for (IModFileInfo fileInfo : ModList.get().getModFiles()) {
+            Path path = fileInfo.getFile().getFilePath();
+            if (!Files.isRegularFile(path)) continue;
+            String name = path.getFileName().toString();
+            String modid = fileInfo.getMods().isEmpty() ? name : fileInfo.getMods().get(0).getModId();
+            jarList.add(new JarInfo(path, name, modid, hashes.getOrDefault(path, ModpackFingerprint.NO_HASH)));
+        }
+        JarInfo[] jars = jarList.toArray(new JarInfo[0]);
+
+        // Центральные каталоги читаются параллельно, неизмененные jar берутся из кэша
+        Map<String, List<String>> current = new ConcurrentHashMap<>();
+        List<String>[] classes = listClasses(jars, cache, current);
+
+        // Класс -> первый jar; повторные вхождения собираются отдельно
+        Map<String, Integer> owners = new HashMap<>(1 << 16);
+        Map<String, int[]> duplicates = new HashMap<>();
+        Map<String, BitSet> packages = new HashMap<>();
+        for (int jar = 0; jar < jars.length; jar++) {
+            for (String className : classes[jar]) {
+                Integer previous = owners.putIfAbsent(className, jar);
+                if (previous != null) {
+                    int[] known = duplicates.get(className);
+                    duplicates.put(className, known == null ? new int[]{previous, jar} : append(known, jar));
+                }
+                int lastDot = className.lastIndexOf('.');
+                if (lastDot > 0) {
+                    packages.computeIfAbsent(className.substring(0, lastDot), k -> new BitSet()).set(jar);
+                }
+            }
+        }
+
+        index = new Index(jars, duplicates);
+        if (!current.keySet().equals(cache.keySet())) {
+            saveCache(current);
+        }
+
+        List<DetectedConflict> conflicts = conflicts(jars, duplicates, packages);
+        LOGGER.info("Индекс классов модов: {} jar, {} классов, {} дубликатов, {} мс",
+            jars.length, owners.size(), duplicates.size(), (System.nanoTime() - start) / 1_000_000);
+        return conflicts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String>[] listClasses(JarInfo[] jars, Map<String, List<String>> cache,
+                                              Map<String, List<String>> current) {
+        List<String>[] classes = new List[jars.length];
+        Arrays.parallelSetAll(classes, i -> {
+            JarInfo jar = jars[i];
+            boolean cacheable = !ModpackFingerprint.NO_HASH.equals(jar.hash());
+            List<String> cached = cacheable ? cache.get(jar.hash()) : null;
+            List<String> list = cached != null ? cached : readCentralDirectory(jar.path());
+            if (list == null) return List.of();
+            if (cacheable) current.put(jar.hash(), list);
+            return list;
+        });
+        return classes;
+    }
+
+    /**
+     * Имена классов из центрального каталога jar или null, если jar не читается
+     */
+    private static List<String> readCentralDirectory(Path path) {
+        List<String> classes = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                // META-INF содержит версии для multi-release jar и вложенные jar
+                if (!name.endsWith(".class") || name.startsWith("META-INF/")) continue;
+                if (name.endsWith("module-info.class") || name.endsWith("package-info.class")) continue;
+                classes.add(name.substring(0, name.length() - 6).replace('/', '.'));
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Не удалось прочитать {}", path, e);
+            return null;
+        }
+        return classes;
+    }
+
+    /**
+     * Один конфликт на пару jar: дублирующиеся классы и общие пакеты
+     * Класс или пакет из трех и более jar учитывается в каждой паре, а не только в парах с первым jar
+     */
+    private static List<DetectedConflict> conflicts(JarInfo[] jars, Map<String, int[]> duplicates,
+                                                    Map<String, BitSet> packages) {
+        Map<Long, PairStats> pairs = new TreeMap<>();
+        for (Map.Entry<String, int[]> entry : duplicates.entrySet()) {
+            int[] owners = entry.getValue();
+            for (int i = 0; i < owners.length; i++) {
+                for (int j = i + 1; j < owners.length; j++) {
+                    pairs.computeIfAbsent(pairKey(owners[i], owners[j]), k -> new PairStats()).addClass(entry.getKey());
+                }
+            }
+        }
+        for (Map.Entry<String, BitSet> entry : packages.entrySet()) {
+            BitSet owners = entry.getValue();
+            if (owners.cardinality() < 2) continue;
+            for (int first = owners.nextSetBit(0); first >= 0; first = owners.nextSetBit(first + 1)) {
+                for (int jar = owners.nextSetBit(first + 1); jar >= 0; jar = owners.nextSetBit(jar + 1)) {
+                    pairs.computeIfAbsent(pairKey(first, jar), k -> new PairStats()).packages++;
+                }
+            }
+        }
+
+        List<DetectedConflict> conflicts = new ArrayList<>();
+        for (Map.Entry<Long, PairStats> entry : pairs.entrySet()) {
+            JarInfo first = jars[(int) (entry.getKey() >>> 32)];
+            JarInfo second = jars[(int) (long) entry.getKey()];
+            PairStats stats = entry.getValue();
+            String description = stats.classes > 0
+                ? "Классы упакованы в " + first.name() + " и " + second.name() + ": " + stats.classes
+                    + " (" + String.join(", ", stats.samples) + (stats.classes > stats.samples.size() ? ", ..." : "") + ")"
+                : "Разделенные пакеты в " + first.name() + " и " + second.name() + ": " + stats.packages;
+            LOGGER.warn(description);
+            conflicts.add(new DetectedConflict(
+                DetectedConflict.ConflictType.DUPLICATE_CLASS,
+                first.modid(),
+                second.modid(),
+                description,
+                "Обнаружено индексом классов модов; загружается копия из jar, загруженного первым"
+            ));
+        }
+        return conflicts;
+    }
+
+    private static long pairKey(int first, int second) {
+        return ((long) Math.min(first, second) << 32) | Math.max(first, second);
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static Map<String, List<String>> loadCache() {
+        Map<String, List<String>> cache = new HashMap<>();
+        if (!Files.exists(CACHE_FILE)) return cache;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(CACHE_FILE))))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) return cache;
+            int jarCount = in.readInt();
+            for (int i = 0; i < jarCount; i++) {
+                String hash = in.readUTF();
+                int classCount = in.readInt();
+                List<String> classes = new ArrayList<>(classCount);
+                for (int c = 0; c < classCount; c++) {
+                    classes.add(in.readUTF());
+                }
+                cache.put(hash, classes);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Кэш индекса классов поврежден и будет перестроен", e);
+            cache.clear();
+        }
+        return cache;
+    }
+
+    private static void saveCache(Map<String, List<String>> cache) {
+        try {
+            Files.createDirectories(CACHE_FILE.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(CACHE_FILE))))) {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeInt(cache.size());
+                for (Map.Entry<String, List<String>> entry : cache.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (String className : entry.getValue()) {
+                        out.writeUTF(className);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Ошибка при сохранении кэша индекса классов", e);
+        }
+    }
+
+    private record JarInfo(Path path, String name, String modid, String hash) {
+    }
+
+    /**
+     * Опубликованный индекс: после построения хранятся только дубликаты
+     */
+    private record Index(JarInfo[] jars, Map<String, int[]> duplicates) {
+        static final Index EMPTY = new Index(new JarInfo[0], Map.of());
+    }
+
+    private static final class PairStats {
+        int classes;
+        int packages;
+        final List<String> samples = new ArrayList<>(SAMPLE_CLASSES);
+
+        void addClass(String className) {
+            classes++;
+            if (samples.size() < SAMPLE_CLASSES) samples.add(className);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.conflictmediator.analysis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Словарь кадров стектрейсов
+ *
+ * Имена классов, методов и файлов интернируются в таблицу строк, а каждый уникальный
+ * кадр (класс, метод, файл, строка) получает целочисленный идентификатор.
+ * Одинаковые кадры разных ошибок хранятся один раз.
+ */
+public class FrameDictionary {
+    // Индекс отсутствующей строки (например, файл неизвестен)
+    private static final int NO_STRING = -1;
+    private static final int FRAME_FIELDS = 4;
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Map<FrameKey, Integer> frameIds = new HashMap<>();
+    private int[] frames = new int[FRAME_FIELDS * 256];
+    private int frameCount = 0;
+
+    /**
+     * Интернирование строки, возвращает ее индекс
+     */
+    public synchronized int internString(String value) {
+        if (value == null) return NO_STRING;
+        Integer id = stringIds.get(value);
+        if (id != null) return id;
+        strings.add(value);
+        stringIds.put(value, strings.size() - 1);
+        return strings.size() - 1;
+    }
+
+    /**
+     * Строка по индексу
+     */
+    public synchronized String getString(int id) {
+        return id == NO_STRING ? null : strings.get(id);
+    }
+
+    /**
+     * Интернирование кадра, возвращает его идентификатор
+     */
+    public synchronized int internFrame(StackTraceElement element) {
+        FrameKey key = new FrameKey(
+            internString(element.getClassName()),
+            internString(element.getMethodName()),
+            internString(element.getFileName()),
+            element.getLineNumber()
+        );
+        Integer id = frameIds.get(key);
+        if (id != null) return id;
+
+        if ((frameCount + 1) * FRAME_FIELDS > frames.length) {
+            int[] grown = new int[frames.length * 2];
+            System.arraycopy(frames, 0, grown, 0, frames.length);
+            frames = grown;
+        }
+        int offset = frameCount * FRAME_FIELDS;
+        frames[offset] = key.classId;
+        frames[offset + 1] = key.methodId;
+        frames[offset + 2] = key.fileId;
+        frames[offset + 3] = key.line;
+        frameIds.put(key, frameCount);
+        return frameCount++;
+    }
+
+    /**
+     * Восстановление элемента стектрейса по идентификатору кадра
+     */
+    public synchronized StackTraceElement toElement(int frameId) {
+        int offset = frameId * FRAME_FIELDS;
+        return new StackTraceElement(
+            strings.get(frames[offset]),
+            strings.get(frames[offset + 1]),
+            getString(frames[offset + 2]),
+            frames[offset + 3]
+        );
+    }
+
+    /**
+     * Имя класса кадра
+     */
+    public synchronized String getClassName(int frameId) {
+        return strings.get(frames[frameId * FRAME_FIELDS]);
+    }
+
+    public synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    public synchronized int getStringCount() {
+        return strings.size();
+    }
+
+    private record FrameKey(int classId, int methodId, int fileId, int line) {
+    }
+}
@@ -0,0 +1,194 @@
+package com.conflictmediator.analysis;
+
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.forgespi.language.IModFileInfo;
+import net.minecraftforge.forgespi.language.IModInfo;
+import net.minecraftforge.forgespi.language.ModFileScanData;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * Определение мода-владельца класса
+ *
+ * Индекс строится по данным сканирования файлов модов: каждому пакету, в котором
+ * лежат классы мода, сопоставляется плотный индекс мода. Поиск по имени класса
+ * не выделяет памяти, поэтому пригоден для сэмплеров и аварийного анализа.
+ */
+public class ModAttribution {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /**
+     * Индекс, возвращаемый для классов без известного владельца
+     */
+    public static final int UNKNOWN = -1;
+
+    // Моды платформы: их кадры не считаются участниками конфликта
+    private static final Set<String> PLATFORM_MODS = Set.of("minecraft", "forge");
+
+    private volatile boolean built = false;
+    private String[] modIds = new String[0];
+    private boolean[] platform = new boolean[0];
+    private Map<String, Integer> indexByModId = Collections.emptyMap();
+
+    // Открытая адресация: пакет -> индекс мода
+    private String[] packageKeys = new String[0];
+    private int[] packageOwners = new int[0];
+    private int mask = 0;
+
+    /**
+     * Построение индекса, если он еще не построен
+     * При ошибке или недоступном ModList индекс остается пустым, и следующий вызов повторит попытку.
+     */
+    public void ensureBuilt() {
+        if (built) return;
+        synchronized (this) {
+            if (built) return;
+            try {
+                built = build();
+            } catch (Exception e) {
+                LOGGER.warn("Не удалось построить индекс владельцев классов", e);
+            }
+        }
+    }
+
+    private boolean build() {
+        ModList modList = ModList.get();
+        if (modList == null) return false;
+
+        List<String> ids = new ArrayList<>();
+        Map<String, Integer> byId = new HashMap<>();
+        Map<String, Integer> owners = new HashMap<>();
+
+        for (IModFileInfo fileInfo : modList.getModFiles()) {
+            List<IModInfo> mods = fileInfo.getMods();
+            if (mods.isEmpty()) continue;
+
+            int fileOwner = UNKNOWN;
+            for (IModInfo mod : mods) {
+                int index = byId.computeIfAbsent(mod.getModId(), id -> {
+                    ids.add(id);
+                    return ids.size() - 1;
+                });
+                if (fileOwner == UNKNOWN) fileOwner = index;
+            }
+
+            ModFileScanData scanData = fileInfo.getFile().getScanResult();
+            if (scanData == null) continue;
+            for (ModFileScanData.ClassData classData : scanData.getClasses()) {
+                String className = classData.clazz().getClassName();
+                int lastDot = className.lastIndexOf('.');
+                if (lastDot <= 0) continue;
+                // Первый файл, объявивший пакет, считается его владельцем
+                owners.putIfAbsent(className.substring(0, lastDot), fileOwner);
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(16, owners.size() * 2) - 1) << 1;
+        String[] keys = new String[capacity];
+        int[] values = new int[capacity];
+        int tableMask = capacity - 1;
+        for (Map.Entry<String, Integer> entry : owners.entrySet()) {
+            String pkg = entry.getKey();
+            int slot = mix(pkg.hashCode()) & tableMask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & tableMask;
+            }
+            keys[slot] = pkg;
+            values[slot] = entry.getValue();
+        }
+
+        String[] idArray = ids.toArray(new String[0]);
+        boolean[] platformFlags = new boolean[idArray.length];
+        for (int i = 0; i < idArray.length; i++) {
+            platformFlags[i] = PLATFORM_MODS.contains(idArray[i]);
+        }
+
+        this.modIds = idArray;
+        this.platform = platformFlags;
+        this.indexByModId = byId;
+        this.packageKeys = keys;
+        this.packageOwners = values;
+        this.mask = tableMask;
+
+        LOGGER.debug("Индекс владельцев классов: {} модов, {} пакетов", idArray.length, owners.size());
+        return true;
+    }
+
+    /**
+     * Индекс мода-владельца класса или {@link #UNKNOWN}. Не выделяет памяти.
+     */
+    public int modIndexOf(String className) {
+        ensureBuilt();
+        String[] keys = packageKeys;
+        if (keys.length == 0 || className == null) return UNKNOWN;
+
+        // Ищем сначала собственный пакет класса, затем родительские пакеты
+        int end = className.lastIndexOf('.');
+        while (end > 0) {
+            int owner = lookupPackage(keys, className, end);
+            if (owner != UNKNOWN) return owner;
+            end = className.lastIndexOf('.', end - 1);
+        }
+        return UNKNOWN;
+    }
+
+    private int lookupPackage(String[] keys, String className, int end) {
+        int hash = 0;
+        for (int i = 0; i < end; i++) {
+            hash = 31 * hash + className.charAt(i);
+        }
+        int slot = mix(hash) & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (key.length() == end && className.regionMatches(0, key, 0, end)) {
+                return packageOwners[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Modid владельца класса или null
+     */
+    public String modIdOf(String className) {
+        int index = modIndexOf(className);
+        return index == UNKNOWN ? null : modIds[index];
+    }
+
+    /**
+     * Modid по индексу
+     */
+    public String modId(int index) {
+        return modIds[index];
+    }
+
+    /**
+     * Индекс мода по modid или {@link #UNKNOWN}
+     */
+    public int indexOf(String modid) {
+        ensureBuilt();
+        return indexByModId.getOrDefault(modid, UNKNOWN);
+    }
+
+    /**
+     * Является ли мод частью платформы (minecraft, forge)
+     */
+    public boolean isPlatform(int index) {
+        return index != UNKNOWN && platform[index];
+    }
+
+    /**
+     * Количество модов в индексе
+     */
+    public int getModCount() {
+        ensureBuilt();
+        return modIds.length;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
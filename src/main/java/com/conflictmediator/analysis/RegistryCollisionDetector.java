@@ -0,0 +1,315 @@
+package com.conflictmediator.analysis;
+
+import com.conflictmediator.core.ErrorInterceptor;
+import com.conflictmediator.core.ModEventBuses;
+import net.minecraft.core.Registry;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.registries.ForgeRegistry;
+import net.minecraftforge.registries.RegisterEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Детектор коллизий реестров
+ *
+ * Подписывается на {@link RegisterEvent} в шине каждого мода с наивысшим и наинизшим
+ * приоритетом. Записи, появившиеся в реестре между этими слушателями, принадлежат моду;
+ * записи, появившиеся вне обработчиков модов, приписываются пространству имен ключа.
+ * Новые записи находятся по числовым идентификаторам начиная с последнего просмотренного,
+ * поэтому каждая запись просматривается один раз.
+ *
+ * Замена значения под существующим идентификатором (override) сохраняет числовой id,
+ * поэтому для каждого id запоминается экземпляр значения. Сверка по идентичности ссылок
+ * выполняется не в каждом окне, а только в окнах модов, добавивших записи в этот реестр:
+ * переопределение, найденное там, приписывается моду окна. Замены модов, которые в реестре
+ * ничего не добавляли, находит однократная сверка всех реестров в {@link #verify()}, владелец
+ * определяется по классу нового значения. Итого: O(записей) на каждое активное окно и один
+ * проход в конце вместо прохода в каждом из двух слушателей каждого мода.
+ *
+ * Индекс ResourceLocation -> мод использует открытую адресацию на массивах и не
+ * выделяет памяти на запись (кроме расширения самих массивов).
+ */
+public class RegistryCollisionDetector {
+    private static final Logger LOGGER = LogManager.getLogger();
+    // Сколько пустых идентификаторов подряд допускается при поиске новых записей
+    private static final int MAX_ID_GAP = 4096;
+
+    private final ModAttribution attribution;
+    private final ErrorInterceptor errorInterceptor;
+    private final Map<ResourceKey<?>, RegistryIndex> indexes = new ConcurrentHashMap<>();
+
+    public RegistryCollisionDetector(ModAttribution attribution, ErrorInterceptor errorInterceptor) {
+        this.attribution = attribution;
+        this.errorInterceptor = errorInterceptor;
+    }
+
+    /**
+     * Подписка на события регистрации всех модов
+     */
+    public void register() {
+        ModEventBuses.forEach((modid, bus) -> {
+            bus.addListener(EventPriority.HIGHEST, true, RegisterEvent.class, event -> scan(event, null));
+            bus.addListener(EventPriority.LOWEST, true, RegisterEvent.class, event -> scan(event, modid));
+        });
+    }
+
+    private void scan(RegisterEvent event, String modid) {
+        RegistryIndex index = indexes.computeIfAbsent(event.getRegistryKey(), key -> new RegistryIndex());
+        List<DetectedConflict> conflicts = null;
+
+        synchronized (index) {
+            EntrySource source = EntrySource.of(event);
+            if (source == null) return;
+            index.source = source;
+
+            // Новые записи
+            int pending = source.size() - index.scanned;
+            int id = index.nextId;
+            int gap = 0;
+            while (pending > 0 && gap < MAX_ID_GAP) {
+                Object value = source.valueAt(id);
+                ResourceLocation key = value == null ? null : source.keyOf(value);
+                if (key == null) {
+                    id++;
+                    gap++;
+                    continue;
+                }
+                gap = 0;
+                pending--;
+                index.scanned++;
+                index.remember(id++, value);
+
+                String owner = modid != null ? modid : key.getNamespace();
+                index.put(key, attribution.indexOf(owner));
+            }
+            index.nextId = id;
+
+            if (modid == null) {
+                // Начало окна мода
+                index.windowScanned = index.scanned;
+                index.windowNextId = index.nextId;
+            } else if (index.scanned > index.windowScanned) {
+                // Мод добавлял записи в этот реестр - проверяем, не заменил ли он прежние
+                int ownerIndex = attribution.indexOf(modid);
+                conflicts = recheck(event.getRegistryKey(), index, index.windowNextId, ownerIndex, modid);
+            }
+        }
+
+        if (conflicts != null) {
+            errorInterceptor.reportConflicts(conflicts, "Реестр " + event.getRegistryKey().location());
+        }
+    }
+
+    /**
+     * Однократная сверка всех реестров после регистрации
+     * Находит замены, сделанные модами без новых записей в реестре
+     */
+    public void verify() {
+        for (Map.Entry<ResourceKey<?>, RegistryIndex> entry : indexes.entrySet()) {
+            RegistryIndex index = entry.getValue();
+            List<DetectedConflict> conflicts;
+            synchronized (index) {
+                if (index.source == null) continue;
+                conflicts = recheck(entry.getKey(), index, index.nextId, -1, null);
+            }
+            if (conflicts != null) {
+                errorInterceptor.reportConflicts(conflicts, "Реестр " + entry.getKey().location());
+            }
+        }
+    }
+
+    /**
+     * Сверка значений id до limit с запомненными экземплярами
+     * Без известного мода (ownerIndex < 0) владелец определяется по классу нового значения
+     */
+    private List<DetectedConflict> recheck(ResourceKey<?> registry, RegistryIndex index, int limit,
+                                           int ownerIndex, String owner) {
+        List<DetectedConflict> conflicts = null;
+        EntrySource source = index.source;
+        int checked = Math.min(limit, index.values.length);
+        for (int id = 0; id < checked; id++) {
+            Object known = index.values[id];
+            if (known == null) continue;
+            Object current = source.valueAt(id);
+            if (current == null || current == known) continue;
+            index.values[id] = current;
+            ResourceLocation key = source.keyOf(current);
+            if (key == null) continue;
+
+            int replacingIndex = ownerIndex;
+            String replacing = owner;
+            if (ownerIndex < 0) {
+                replacingIndex = attribution.modIndexOf(current.getClass().getName());
+                replacing = replacingIndex == ModAttribution.UNKNOWN ? "неизвестный мод" : attribution.modId(replacingIndex);
+            }
+            DetectedConflict conflict = recordOverride(registry, index, key, replacingIndex, replacing);
+            if (conflict != null) {
+                if (conflicts == null) conflicts = new ArrayList<>();
+                conflicts.add(conflict);
+            }
+        }
+        return conflicts;
+    }
+
+    private DetectedConflict recordOverride(ResourceKey<?> registry, RegistryIndex index,
+                                            ResourceLocation key, int ownerIndex, String owner) {
+        int previous = index.put(key, ownerIndex);
+        // Мод заменяет собственную запись - не конфликт
+        if (previous == RegistryIndex.ABSENT || previous == ownerIndex) return null;
+
+        String previousOwner = previous == ModAttribution.UNKNOWN ? key.getNamespace() : attribution.modId(previous);
+        LOGGER.warn("Реестр {}: значение {} заменено модом {} (ранее {})",
+            registry.location(), key, owner, previousOwner);
+        return new DetectedConflict(
+            DetectedConflict.ConflictType.REGISTRY,
+            previousOwner,
+            owner,
+            "Переопределение " + key + " в реестре " + registry.location(),
+            "Обнаружено детектором коллизий реестров"
+        );
+    }
+
+    /**
+     * Количество проиндексированных записей во всех реестрах
+     */
+    public int getIndexedEntryCount() {
+        int total = 0;
+        for (RegistryIndex index : indexes.values()) {
+            total += index.size;
+        }
+        return total;
+    }
+
+    /**
+     * Индекс ResourceLocation -> индекс мода с открытой адресацией
+     */
+    private static final class RegistryIndex {
+        static final int ABSENT = Integer.MIN_VALUE;
+
+        ResourceLocation[] keys = new ResourceLocation[1024];
+        int[] owners = new int[1024];
+        // Экземпляр значения по числовому id на момент последней сверки
+        Object[] values = new Object[1024];
+        int size = 0;
+        int scanned = 0;
+        int nextId = 0;
+        // Состояние на начало окна текущего мода
+        int windowScanned = 0;
+        int windowNextId = 0;
+        EntrySource source;
+
+        /**
+         * Запись владельца ключа, возвращает предыдущего владельца или {@link #ABSENT}
+         */
+        int put(ResourceLocation key, int owner) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = mix(key.hashCode()) & mask;
+            ResourceLocation existing;
+            while ((existing = keys[slot]) != null) {
+                if (existing.equals(key)) {
+                    int previous = owners[slot];
+                    owners[slot] = owner;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            owners[slot] = owner;
+            size++;
+            return ABSENT;
+        }
+
+        void remember(int id, Object value) {
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, id + 1));
+            }
+            values[id] = value;
+        }
+
+        private void grow() {
+            ResourceLocation[] oldKeys = keys;
+            int[] oldOwners = owners;
+            keys = new ResourceLocation[oldKeys.length * 2];
+            owners = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                ResourceLocation key = oldKeys[i];
+                if (key == null) continue;
+                int slot = mix(key.hashCode()) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                owners[slot] = oldOwners[i];
+            }
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Доступ к записям реестра по числовому идентификатору
+     */
+    private interface EntrySource {
+        int size();
+
+        Object valueAt(int id);
+
+        ResourceLocation keyOf(Object value);
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static EntrySource of(RegisterEvent event) {
+            Registry vanilla = event.getVanillaRegistry();
+            if (vanilla != null) {
+                return new EntrySource() {
+                    @Override
+                    public int size() {
+                        return vanilla.size();
+                    }
+
+                    @Override
+                    public Object valueAt(int id) {
+                        return vanilla.byId(id);
+                    }
+
+                    @Override
+                    public ResourceLocation keyOf(Object value) {
+                        return vanilla.getKey(value);
+                    }
+                };
+            }
+            if (event.getForgeRegistry() instanceof ForgeRegistry forge) {
+                return new EntrySource() {
+                    @Override
+                    public int size() {
+                        return forge.getKeys().size();
+                    }
+
+                    @Override
+                    public Object valueAt(int id) {
+                        return forge.getValue(id);
+                    }
+
+                    @Override
+                    public ResourceLocation keyOf(Object value) {
+                        return forge.getKey(value);
+                    }
+                };
+            }
+            return null;
+        }
+    }
+}
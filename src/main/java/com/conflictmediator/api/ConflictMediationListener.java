@@ -0,0 +1,24 @@
+package com.conflictmediator.api;
+
+/**
+ * Слушатель медиации конфликтов
+ *
+ * Вызывается диспетчером медиации в пуле потоков, параллельно с другими слушателями;
+ * конфликты одного слушателя передаются по очереди, не параллельно.
+ * Каждый слушатель получает собственный экземпляр {@link ConflictMediationEvent},
+ * поэтому синхронизация внутри события не требуется.
+ *
+ * Использование:
+ * <pre>
+ * {@code ConflictMediator.getInstance().getMediationDispatcher()
+ *     .registerListener("mymod", event -> event.setResolution("disable_mymod_feature"));}
+ * </pre>
+ */
+@FunctionalInterface
+public interface ConflictMediationListener {
+    /**
+     * Обработка конфликта. Должна завершаться быстро: по истечении дедлайна
+     * результат слушателя игнорируется, а поток прерывается.
+     */
+    void onConflictMediation(ConflictMediationEvent event);
+}
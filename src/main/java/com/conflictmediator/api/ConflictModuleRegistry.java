@@ -14,28 +14,32 @@ import java.util.*;
 
 /**
  * Реестр отключаемых модулей модов
+ *
+ * Состояние хранится в неизменяемых картах за volatile-ссылками: {@link #isModuleDisabled}
+ * читает без блокировок, изменения выполняются копированием при записи, а перечитанный
+ * файл подменяет состояние одной записью ссылки.
  */
 public class ConflictModuleRegistry {
     private static final Logger LOGGER = LogManager.getLogger();
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final Path DISABLED_MODULES_FILE = FMLPaths.CONFIGDIR.get().resolve("conflict_mediator_disabled_modules.json");
     
-    private final Map<String, Set<String>> registeredModules = new HashMap<>(); // modid -> set of module identifiers
-    private final Map<String, Set<String>> disabledModules = new HashMap<>(); // modid -> set of disabled module identifiers
+    private volatile Map<String, Set<String>> registeredModules = Map.of(); // modid -> set of module identifiers
+    private volatile Map<String, Set<String>> disabledModules = Map.of(); // modid -> set of disabled module identifiers
     
     /**
      * Регистрация модуля мода
      */
-    public void registerModule(String modid, String moduleIdentifier) {
-        registeredModules.computeIfAbsent(modid, k -> new HashSet<>()).add(moduleIdentifier);
+    public synchronized void registerModule(String modid, String moduleIdentifier) {
+        registeredModules = with(registeredModules, modid, moduleIdentifier);
         LOGGER.debug("Зарегистрирован модуль {} для мода {}", moduleIdentifier, modid);
     }
     
     /**
      * Отключение модуля
      */
-    public void disableModule(String modid, String moduleIdentifier) {
-        disabledModules.computeIfAbsent(modid, k -> new HashSet<>()).add(moduleIdentifier);
+    public synchronized void disableModule(String modid, String moduleIdentifier) {
+        disabledModules = with(disabledModules, modid, moduleIdentifier);
         LOGGER.info("Модуль {} мода {} отключен", moduleIdentifier, modid);
     }
     
@@ -49,26 +53,83 @@ public class ConflictModuleRegistry {
     /**
      * Загрузка отключенных модулей из файла
      */
-    public void loadDisabledModules() {
+    public synchronized void loadDisabledModules() {
         if (!Files.exists(DISABLED_MODULES_FILE)) {
             LOGGER.debug("Файл отключенных модулей не найден: {}", DISABLED_MODULES_FILE);
             return;
         }
         
         try {
-            String json = Files.readString(DISABLED_MODULES_FILE);
-            Map<String, List<String>> data = GSON.fromJson(json,
-                new TypeToken<Map<String, List<String>>>(){}.getType());
-            
-            if (data != null) {
-                for (Map.Entry<String, List<String>> entry : data.entrySet()) {
-                    disabledModules.put(entry.getKey(), new HashSet<>(entry.getValue()));
+            Map<String, Set<String>> data = readDisabledModules();
+            Map<String, Set<String>> merged = new HashMap<>(disabledModules);
+            merged.putAll(data);
+            disabledModules = Map.copyOf(merged);
+            LOGGER.info("Загружено {} модов с отключенными модулями", data.size());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Ошибка при загрузке отключенных модулей", e);
+        }
+    }
+    
+    /**
+     * Перечитывание файла с заменой всего состояния отключенных модулей
+     * Файл разбирается до захвата блокировки; при ошибке разбора состояние не меняется.
+     *
+     * @return описание изменений или пустой список, если состояние не изменилось
+     */
+    public List<String> reloadDisabledModules() throws IOException {
+        Map<String, Set<String>> data = Files.exists(DISABLED_MODULES_FILE) ? readDisabledModules() : Map.of();
+        List<String> changes = new ArrayList<>();
+        synchronized (this) {
+            Map<String, Set<String>> previous = disabledModules;
+            describeChanges(previous, data, "-", changes);
+            describeChanges(data, previous, "+", changes);
+            disabledModules = data;
+        }
+        return changes;
+    }
+    
+    private static Map<String, Set<String>> readDisabledModules() throws IOException {
+        String json = Files.readString(DISABLED_MODULES_FILE);
+        Map<String, List<String>> data = GSON.fromJson(json,
+            new TypeToken<Map<String, List<String>>>(){}.getType());
+        
+        Map<String, Set<String>> result = new HashMap<>();
+        if (data != null) {
+            for (Map.Entry<String, List<String>> entry : data.entrySet()) {
+                if (entry.getValue() != null) {
+                    result.put(entry.getKey(), Set.copyOf(entry.getValue()));
                 }
-                LOGGER.info("Загружено {} модов с отключенными модулями", data.size());
             }
-        } catch (IOException e) {
-            LOGGER.error("Ошибка при загрузке отключенных модулей", e);
         }
+        return Map.copyOf(result);
+    }
+    
+    /**
+     * Модули из {@code from}, отсутствующие в {@code to}, в виде "знак modid:модуль"
+     */
+    private static void describeChanges(Map<String, Set<String>> from, Map<String, Set<String>> to,
+                                        String sign, List<String> changes) {
+        for (Map.Entry<String, Set<String>> entry : from.entrySet()) {
+            Set<String> other = to.getOrDefault(entry.getKey(), Collections.emptySet());
+            for (String module : entry.getValue()) {
+                if (!other.contains(module)) {
+                    changes.add(sign + entry.getKey() + ":" + module);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Копия карты с добавленным модулем
+     */
+    private static Map<String, Set<String>> with(Map<String, Set<String>> map, String modid, String module) {
+        Set<String> current = map.getOrDefault(modid, Collections.emptySet());
+        if (current.contains(module)) return map;
+        Set<String> modules = new HashSet<>(current);
+        modules.add(module);
+        Map<String, Set<String>> copy = new HashMap<>(map);
+        copy.put(modid, Set.copyOf(modules));
+        return Map.copyOf(copy);
     }
     
     /**
@@ -90,10 +151,14 @@ public class ConflictModuleRegistry {
     }
     
     public Map<String, Set<String>> getRegisteredModules() {
-        return Collections.unmodifiableMap(registeredModules);
+        return registeredModules;
     }
     
     public Map<String, Set<String>> getDisabledModules() {
-        return Collections.unmodifiableMap(disabledModules);
+        return disabledModules;
+    }
+    
+    public static Path getDisabledModulesFile() {
+        return DISABLED_MODULES_FILE;
     }
 }
@@ -0,0 +1,109 @@
+package com.conflictmediator.collector;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Самопроверка сборщика без Minecraft и тестового окружения
+ *
+ * Проверяет, что {@link ConflictRecord#toLine()} и {@link ConflictRecord#parse(String)}
+ * взаимно обратны, в том числе для полей с табуляцией, переводами строк и обратной
+ * косой чертой, и что снимок {@link CollectorStore} сохраняет отпечатки модпаков.
+ * Запуск: {@code java -cp <классы> com.conflictmediator.collector.ConflictCollector --self-check}
+ */
+final class CollectorSelfCheck {
+    private static final List<ConflictRecord> SAMPLES = List.of(
+        new ConflictRecord(0x1234abcdL, "a".repeat(64), "node-1", "MIXIN", "moda", "modb", "Простое описание"),
+        new ConflictRecord(-1L, "", "", "REGISTRY", "", "", ""),
+        new ConflictRecord(0x8000000000000000L, "b".repeat(64), "host\tgame", "PERFORMANCE", "mod\\a", "mod\nb",
+            "строка 1\nстрока 2\r\n\tотступ \\t не табуляция \\"),
+        new ConflictRecord(42L, "c".repeat(64), "узел", "CLASS", "m1", "m2", "\\\\\\")
+    );
+
+    private CollectorSelfCheck() {
+    }
+
+    /**
+     * Выполнение всех проверок, возвращает true, если все прошли
+     */
+    static boolean run(PrintStream out) {
+        int failures = 0;
+        for (ConflictRecord record : SAMPLES) {
+            String line = record.toLine();
+            if (line.indexOf('\n') >= 0 || line.indexOf('\r') >= 0) {
+                out.println("FAIL перевод строки в записи: " + line);
+                failures++;
+                continue;
+            }
+            ConflictRecord parsed = ConflictRecord.parse(line);
+            if (!record.equals(parsed)) {
+                out.println("FAIL " + record + " -> " + parsed);
+                failures++;
+            }
+        }
+        failures += expectRejected(out, "1\t2\t3");
+        failures += expectRejected(out, SAMPLES.get(0).toLine() + "\tлишнее");
+        failures += expectRejected(out, "не-отпечаток\t\t\t\t\t\t");
+        failures += checkStore(out);
+
+        out.println(failures == 0 ? "Самопроверка сборщика пройдена" : "Самопроверка сборщика: ошибок " + failures);
+        return failures == 0;
+    }
+
+    private static int expectRejected(PrintStream out, String line) {
+        try {
+            ConflictRecord.parse(line);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+        out.println("FAIL принята некорректная запись: " + line);
+        return 1;
+    }
+
+    /**
+     * Снимок хранилища после записи и чтения совпадает с исходным, включая модпаки
+     */
+    private static int checkStore(PrintStream out) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("conflict_collector", ".dat");
+            CollectorStore store = new CollectorStore(file);
+            for (ConflictRecord record : SAMPLES) {
+                store.add(record, 1000L);
+                store.add(record, 2000L);
+            }
+            store.save();
+
+            CollectorStore loaded = new CollectorStore(file);
+            loaded.load();
+            int failures = 0;
+            for (ConflictRecord record : SAMPLES) {
+                CollectorStore.Snapshot expected = store.get(record.fingerprint());
+                CollectorStore.Snapshot actual = loaded.get(record.fingerprint());
+                if (!expected.equals(actual)) {
+                    out.println("FAIL снимок " + expected + " -> " + actual);
+                    failures++;
+                }
+            }
+            CollectorStore.Snapshot first = loaded.get(SAMPLES.get(0).fingerprint());
+            if (first == null || !first.modpacks().equals(List.of(SAMPLES.get(0).modpack()))) {
+                out.println("FAIL отпечаток модпака не сохранен: " + first);
+                failures++;
+            }
+            return failures;
+        } catch (IOException e) {
+            out.println("FAIL хранилище: " + e);
+            return 1;
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.conflictmediator.collector;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Хранилище сборщика: конфликты, дедуплицированные по отпечатку
+ *
+ * Для каждого отпечатка хранятся описание конфликта (один раз), число сообщений,
+ * время первого и последнего сообщения, 64-битные хэши серверов, на которых конфликт
+ * встречался, и отпечатки модпаков этих серверов. На диск хранилище пишется двоичным снимком целиком: во временный файл
+ * с последующей атомарной заменой, поэтому прерванная запись не портит данные.
+ */
+public class CollectorStore {
+    private static final int MAGIC = 0x434D4353; // "CMCS"
+    private static final int FORMAT_VERSION = 2;
+    // Версия 1 не содержала отпечатков модпаков и читается с пустым списком
+    private static final int LEGACY_FORMAT_VERSION = 1;
+    // Ограничение числа различных серверов на конфликт, дальше растет только счетчик
+    private static final int MAX_NODES = 1024;
+    private static final int MAX_MODPACKS = 256;
+
+    private final Path file;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private boolean dirty = false;
+
+    public CollectorStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Учет одной записи, возвращает true для впервые увиденного отпечатка
+     */
+    public synchronized boolean add(ConflictRecord record, long timestamp) {
+        Entry entry = entries.get(record.fingerprint());
+        boolean created = entry == null;
+        if (created) {
+            entry = new Entry(record.fingerprint(), record.type(), record.mod1(), record.mod2(), record.description());
+            entry.firstSeen = timestamp;
+            entries.put(record.fingerprint(), entry);
+        }
+        entry.count++;
+        entry.lastSeen = Math.max(entry.lastSeen, timestamp);
+        entry.addNode(nodeHash(record.node()));
+        entry.addModpack(record.modpack());
+        dirty = true;
+        return created;
+    }
+
+    /**
+     * Выборка конфликтов, отсортированных по числу серверов и сообщений
+     *
+     * @param mod      modid, участвующий в конфликте, или null
+     * @param minNodes минимальное число серверов
+     */
+    public synchronized List<Snapshot> query(String mod, int minNodes, int limit) {
+        List<Snapshot> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.nodeCount < minNodes) continue;
+            if (mod != null && !mod.equals(entry.mod1) && !mod.equals(entry.mod2)) continue;
+            result.add(entry.snapshot());
+        }
+        result.sort(Comparator.comparingInt(Snapshot::nodes).thenComparingLong(Snapshot::count).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public synchronized Snapshot get(long fingerprint) {
+        Entry entry = entries.get(fingerprint);
+        return entry == null ? null : entry.snapshot();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Загрузка снимка с диска
+     */
+    public synchronized void load() throws IOException {
+        if (!Files.exists(file)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Неизвестный формат файла " + file);
+            int version = in.readInt();
+            if (version != FORMAT_VERSION && version != LEGACY_FORMAT_VERSION) throw new IOException("Неподдерживаемая версия хранилища: " + version);
+
+            int count = in.readInt();
+            entries.clear();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(in.readLong(), readString(in), readString(in), readString(in), readString(in));
+                entry.count = in.readLong();
+                entry.firstSeen = in.readLong();
+                entry.lastSeen = in.readLong();
+                int nodes = in.readInt();
+                entry.nodes = new long[Math.max(4, nodes)];
+                for (int n = 0; n < nodes; n++) {
+                    entry.nodes[n] = in.readLong();
+                }
+                entry.nodeCount = nodes;
+                if (version >= FORMAT_VERSION) {
+                    int modpacks = in.readInt();
+                    for (int m = 0; m < modpacks; m++) {
+                        entry.modpacks.add(readString(in));
+                    }
+                }
+                entries.put(entry.fingerprint, entry);
+            }
+        }
+        dirty = false;
+    }
+
+    /**
+     * Запись снимка на диск, если с прошлой записи были изменения
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeLong(entry.fingerprint);
+                writeString(out, entry.type);
+                writeString(out, entry.mod1);
+                writeString(out, entry.mod2);
+                writeString(out, entry.description);
+                out.writeLong(entry.count);
+                out.writeLong(entry.firstSeen);
+                out.writeLong(entry.lastSeen);
+                out.writeInt(entry.nodeCount);
+                for (int n = 0; n < entry.nodeCount; n++) {
+                    out.writeLong(entry.nodes[n]);
+                }
+                out.writeInt(entry.modpacks.size());
+                for (String modpack : entry.modpacks) {
+                    writeString(out, modpack);
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    // writeUTF ограничен 64 КБ, описания конфликтов могут быть длиннее
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * FNV-1a: имя сервера хранится только в виде хэша
+     */
+    private static long nodeHash(String node) {
+        long hash = 0xcbf29ce484222325L;
+        byte[] bytes = (node == null ? "" : node).getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Неизменяемое представление конфликта для ответа на запрос
+     */
+    public record Snapshot(long fingerprint, String type, String mod1, String mod2, String description,
+                           long count, int nodes, long firstSeen, long lastSeen, List<String> modpacks) {
+    }
+
+    private static final class Entry {
+        final long fingerprint;
+        final String type;
+        final String mod1;
+        final String mod2;
+        final String description;
+        long count;
+        long firstSeen;
+        long lastSeen;
+        // Отсортированный массив хэшей серверов
+        long[] nodes = new long[4];
+        int nodeCount;
+        // Отпечатки модпаков в порядке первого появления
+        final Set<String> modpacks = new LinkedHashSet<>();
+
+        Entry(long fingerprint, String type, String mod1, String mod2, String description) {
+            this.fingerprint = fingerprint;
+            this.type = type;
+            this.mod1 = mod1;
+            this.mod2 = mod2;
+            this.description = description;
+        }
+
+        void addNode(long node) {
+            int position = Arrays.binarySearch(nodes, 0, nodeCount, node);
+            if (position >= 0 || nodeCount >= MAX_NODES) return;
+            int insert = -position - 1;
+            if (nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+            }
+            System.arraycopy(nodes, insert, nodes, insert + 1, nodeCount - insert);
+            nodes[insert] = node;
+            nodeCount++;
+        }
+
+        void addModpack(String modpack) {
+            if (modpack == null || modpack.isEmpty() || modpacks.size() >= MAX_MODPACKS) return;
+            modpacks.add(modpack);
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(fingerprint, type, mod1, mod2, description, count, nodeCount, firstSeen, lastSeen,
+                List.copyOf(modpacks));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.conflictmediator.collector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборщик отчетов о конфликтах с нескольких серверов
+ *
+ * Отдельный процесс без зависимостей от Minecraft, запускается из jar мода:
+ * {@code java -cp conflictmediator.jar com.conflictmediator.collector.ConflictCollector
+ * [--bind 127.0.0.1] [--port 25590] [--store conflict_collector.dat]}
+ * С единственным аргументом {@code --self-check} выполняет {@link CollectorSelfCheck} и завершается.
+ *
+ * HTTP API:
+ * - {@code POST /conflicts} - записи {@link ConflictRecord}, по одной на строку
+ * - {@code GET /conflicts?mod=&minNodes=&limit=} - конфликты, отсортированные по числу серверов
+ * - {@code GET /conflicts/<отпечаток>} - один конфликт
+ * - {@code GET /stats} - размер хранилища
+ *
+ * Ответы на запросы - строки с полями через табуляцию:
+ * отпечаток, серверов, сообщений, отпечатки модпаков через запятую, тип, мод 1, мод 2, описание.
+ */
+public class ConflictCollector {
+    public static final int DEFAULT_PORT = 25590;
+    private static final int MAX_LIMIT = 1000;
+    private static final long SAVE_INTERVAL_SECONDS = 10;
+
+    private final CollectorStore store;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService saver;
+
+    public ConflictCollector(InetSocketAddress address, Path storeFile) throws IOException {
+        this.store = new CollectorStore(storeFile);
+        store.load();
+        this.server = HttpServer.create(address, 0);
+        this.handlers = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "conflict-collector-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conflict-collector-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server.createContext("/conflicts", this::handleConflicts);
+        server.createContext("/stats", exchange -> respond(exchange, 200, "conflicts\t" + store.size() + "\n"));
+        server.setExecutor(handlers);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 1 && "--self-check".equals(args[0])) {
+            System.exit(CollectorSelfCheck.run(System.out) ? 0 : 1);
+        }
+        Map<String, String> options = parseArgs(args);
+        String bind = options.getOrDefault("bind", "127.0.0.1");
+        int port = Integer.parseInt(options.getOrDefault("port", String.valueOf(DEFAULT_PORT)));
+        Path storeFile = Path.of(options.getOrDefault("store", "conflict_collector.dat"));
+
+        ConflictCollector collector = new ConflictCollector(new InetSocketAddress(bind, port), storeFile);
+        Runtime.getRuntime().addShutdownHook(new Thread(collector::stop, "conflict-collector-shutdown"));
+        collector.start();
+        System.out.println("Сборщик конфликтов слушает " + bind + ":" + collector.getPort()
+            + ", хранилище " + storeFile.toAbsolutePath() + " (" + collector.store.size() + " конфликтов)");
+    }
+
+    public void start() {
+        saver.scheduleWithFixedDelay(this::save, SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        handlers.shutdown();
+        saver.shutdown();
+        save();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public CollectorStore getStore() {
+        return store;
+    }
+
+    private void save() {
+        try {
+            store.save();
+        } catch (IOException e) {
+            System.err.println("Ошибка при сохранении хранилища сборщика: " + e);
+        }
+    }
+
+    private void handleConflicts(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if ("POST".equals(method) && "/conflicts".equals(path)) {
+                handleReport(exchange);
+            } else if ("GET".equals(method) && "/conflicts".equals(path)) {
+                handleQuery(exchange);
+            } else if ("GET".equals(method) && path.startsWith("/conflicts/")) {
+                handleGet(exchange, path.substring("/conflicts/".length()));
+            } else {
+                respond(exchange, 405, "");
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage() + "\n");
+        }
+    }
+
+    private void handleReport(HttpExchange exchange) throws IOException {
+        long now = System.currentTimeMillis();
+        int accepted = 0;
+        int rejected = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                try {
+                    store.add(ConflictRecord.parse(line), now);
+                    accepted++;
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                }
+            }
+        }
+        respond(exchange, 200, "accepted\t" + accepted + "\nrejected\t" + rejected + "\n");
+    }
+
+    private void handleQuery(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String mod = query.get("mod");
+        int minNodes = Integer.parseInt(query.getOrDefault("minNodes", "0"));
+        int limit = Math.min(MAX_LIMIT, Integer.parseInt(query.getOrDefault("limit", "100")));
+
+        StringBuilder sb = new StringBuilder();
+        for (CollectorStore.Snapshot snapshot : store.query(mod, minNodes, limit)) {
+            appendSnapshot(sb, snapshot);
+        }
+        respond(exchange, 200, sb.toString());
+    }
+
+    private void handleGet(HttpExchange exchange, String fingerprint) throws IOException {
+        CollectorStore.Snapshot snapshot = store.get(Long.parseUnsignedLong(fingerprint, 16));
+        if (snapshot == null) {
+            respond(exchange, 404, "");
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        appendSnapshot(sb, snapshot);
+        respond(exchange, 200, sb.toString());
+    }
+
+    private static void appendSnapshot(StringBuilder sb, CollectorStore.Snapshot snapshot) {
+        // Описание кодируется так же, как в протоколе, чтобы ответ оставался построчным
+        String line = new ConflictRecord(snapshot.fingerprint(), String.join(",", snapshot.modpacks()), "",
+            snapshot.type(), snapshot.mod1(), snapshot.mod2(), snapshot.description()).toLine();
+        String[] fields = line.split("\t", -1);
+        sb.append(fields[0]).append('\t').append(snapshot.nodes()).append('\t').append(snapshot.count());
+        sb.append('\t').append(fields[1]);
+        for (int i = 3; i < fields.length; i++) {
+            sb.append('\t').append(fields[i]);
+        }
+        sb.append('\n');
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/tab-separated-values; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> result = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return result;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            result.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Неизвестный аргумент: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,81 @@
+package com.conflictmediator.collector;
+
+/**
+ * Запись о конфликте, передаваемая от сервера сборщику
+ *
+ * Передается одной строкой с полями через табуляцию; табуляция, перевод строки
+ * и обратная косая черта внутри полей экранируются. Класс не зависит от Minecraft
+ * и используется как модом, так и отдельным процессом сборщика.
+ *
+ * @param fingerprint отпечаток конфликта (одинаков для одного конфликта на всех серверах)
+ * @param modpack     отпечаток модпака или пустая строка
+ * @param node        имя сервера
+ */
+public record ConflictRecord(long fingerprint, String modpack, String node, String type,
+                             String mod1, String mod2, String description) {
+    private static final int FIELDS = 7;
+
+    /**
+     * Кодирование в строку протокола (без перевода строки)
+     */
+    public String toLine() {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(Long.toHexString(fingerprint));
+        append(sb, modpack);
+        append(sb, node);
+        append(sb, type);
+        append(sb, mod1);
+        append(sb, mod2);
+        append(sb, description);
+        return sb.toString();
+    }
+
+    /**
+     * Разбор строки протокола
+     *
+     * @throws IllegalArgumentException если строка не является записью
+     */
+    public static ConflictRecord parse(String line) {
+        String[] fields = new String[FIELDS];
+        StringBuilder current = new StringBuilder();
+        int field = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                if (field == FIELDS - 1) throw new IllegalArgumentException("Лишние поля в записи");
+                fields[field++] = current.toString();
+                current.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                current.append(switch (escaped) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> escaped;
+                });
+            } else {
+                current.append(c);
+            }
+        }
+        fields[field] = current.toString();
+        if (field != FIELDS - 1) throw new IllegalArgumentException("Ожидалось " + FIELDS + " полей, получено " + (field + 1));
+
+        return new ConflictRecord(Long.parseUnsignedLong(fields[0], 16),
+            fields[1], fields[2], fields[3], fields[4], fields[5], fields[6]);
+    }
+
+    private static void append(StringBuilder sb, String value) {
+        sb.append('\t');
+        if (value == null) return;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\\' -> sb.append("\\\\");
+                default -> sb.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.conflictmediator.command;
+
+import com.conflictmediator.ConflictMediator;
+import com.conflictmediator.core.MediationDispatcher;
+import com.conflictmediator.core.ModpackFingerprint;
+import com.conflictmediator.profiling.TickSampler;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraftforge.fml.loading.FMLPaths;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Серверные команды медиатора: /conflictmediator ...
+ */
+public final class ConflictMediatorCommands {
+    private static final int DEFAULT_TOP = 10;
+    private static final String PROFILE_EXPORT_FILE = "conflict_mediator_profile.json";
+
+    private ConflictMediatorCommands() {
+    }
+
+    /**
+     * Регистрация команд
+     */
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal(ConflictMediator.MOD_ID)
+            .requires(source -> source.hasPermission(2))
+            .then(Commands.literal("tps")
+                .executes(context -> showTickTop(context, DEFAULT_TOP))
+                .then(Commands.argument("count", IntegerArgumentType.integer(1, 100))
+                    .executes(context -> showTickTop(context, IntegerArgumentType.getInteger(context, "count"))))
+                .then(Commands.literal("reset")
+                    .executes(ConflictMediatorCommands::resetTickSampler)))
+            .then(Commands.literal("profile")
+                .then(Commands.literal("fingerprint")
+                    .executes(ConflictMediatorCommands::showFingerprint))
+                .then(Commands.literal("export")
+                    .executes(ConflictMediatorCommands::exportProfile))
+                .then(Commands.literal("import")
+                    .executes(ConflictMediatorCommands::importProfile)))
+            .then(Commands.literal("mediation")
+                .executes(ConflictMediatorCommands::showMediationStats))
+        );
+    }
+
+    private static int showTickTop(CommandContext<CommandSourceStack> context, int count) {
+        CommandSourceStack source = context.getSource();
+        TickSampler sampler = ConflictMediator.getInstance().getTickSampler();
+        if (!sampler.isRunning()) {
+            source.sendFailure(Component.literal(
+                "Сэмплер тиков выключен. Запустите сервер с -Dconflictmediator.tickSampler=true"));
+            return 0;
+        }
+
+        List<TickSampler.ModShare> top = sampler.getTopMods(count);
+        source.sendSuccess(() -> Component.literal(
+            String.format("Время тика по модам (сэмплов: %d):", sampler.getTotalSamples())), false);
+        for (int i = 0; i < top.size(); i++) {
+            TickSampler.ModShare share = top.get(i);
+            int position = i + 1;
+            source.sendSuccess(() -> Component.literal(String.format("%d. %s - собственное %.1f%%, в стеке %.1f%%",
+                position, share.modid(), share.selfShare() * 100, share.inclusiveShare() * 100)), false);
+        }
+
+        for (TickSampler.SuspectedPair pair : sampler.findSuspectedPairs()) {
+            source.sendSuccess(() -> Component.literal(String.format(
+                "Подозрение на конфликт производительности: %s и %s (%.1f%% сэмплов)",
+                pair.mod1(), pair.mod2(), pair.share() * 100)), false);
+        }
+        return top.size();
+    }
+
+    private static int showFingerprint(CommandContext<CommandSourceStack> context) {
+        ModpackFingerprint fingerprint = ConflictMediator.getInstance().getResolutionProfiles().getFingerprint();
+        if (fingerprint == null) {
+            context.getSource().sendFailure(Component.literal("Отпечаток модпака не вычислен"));
+            return 0;
+        }
+        context.getSource().sendSuccess(() -> Component.literal(String.format("Отпечаток модпака: %s (%d модов)",
+            fingerprint.getFingerprint(), fingerprint.getMods().size())), false);
+        return 1;
+    }
+
+    private static int exportProfile(CommandContext<CommandSourceStack> context) {
+        Path target = FMLPaths.GAMEDIR.get().resolve(PROFILE_EXPORT_FILE);
+        try {
+            Path exported = ConflictMediator.getInstance().getResolutionProfiles().export(target);
+            context.getSource().sendSuccess(() -> Component.literal("Профиль экспортирован: " + exported), true);
+            return 1;
+        } catch (IOException e) {
+            context.getSource().sendFailure(Component.literal("Ошибка экспорта профиля: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    /**
+     * Импорт профиля из файла, созданного командой export на другом узле
+     * Профиль применяется при следующем запуске, если отпечаток совпадает
+     */
+    private static int importProfile(CommandContext<CommandSourceStack> context) {
+        Path source = FMLPaths.GAMEDIR.get().resolve(PROFILE_EXPORT_FILE);
+        try {
+            Path imported = ConflictMediator.getInstance().getResolutionProfiles().importProfile(source);
+            context.getSource().sendSuccess(() -> Component.literal(
+                "Профиль импортирован: " + imported + "; применится при следующем запуске"), true);
+            return 1;
+        } catch (IOException e) {
+            context.getSource().sendFailure(Component.literal("Ошибка импорта профиля: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    private static int showMediationStats(CommandContext<CommandSourceStack> context) {
+        Map<String, MediationDispatcher.ListenerStats> stats =
+            ConflictMediator.getInstance().getMediationDispatcher().getListenerStats();
+        CommandSourceStack source = context.getSource();
+        source.sendSuccess(() -> Component.literal("Слушатели медиации (" + stats.size() + "):"), false);
+        for (Map.Entry<String, MediationDispatcher.ListenerStats> entry : stats.entrySet()) {
+            source.sendSuccess(() -> Component.literal(entry.getKey() + ": " + entry.getValue()), false);
+        }
+        return stats.size();
+    }
+
+    private static int resetTickSampler(CommandContext<CommandSourceStack> context) {
+        ConflictMediator.getInstance().getTickSampler().reset();
+        context.getSource().sendSuccess(() -> Component.literal("Статистика сэмплера тиков сброшена"), true);
+        return 1;
+    }
+}
@@ -0,0 +1,139 @@
+package com.conflictmediator.core;
+
+import com.conflictmediator.api.ConflictModuleRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отслеживание изменений черного списка и отключенных модулей без перезапуска
+ *
+ * {@link WatchService} следит за каталогом конфигурации. Серия событий по одному файлу
+ * (редактор обычно пишет файл в несколько приемов) сворачивается задержкой, после которой
+ * файл перечитывается в фоновом потоке и состояние подменяется целиком. Отключенные модули
+ * применяются сразу; изменения черного списка Mixin требуют перезапуска и сообщаются в лог.
+ */
+public class ConfigWatcher {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final long DEBOUNCE_MS = Long.getLong("conflictmediator.configWatcher.debounceMs", 500L);
+
+    private final MixinDisabler mixinDisabler;
+    private final ConflictModuleRegistry moduleRegistry;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "conflict-mediator-config-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingBlacklist;
+    private ScheduledFuture<?> pendingModules;
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigWatcher(MixinDisabler mixinDisabler, ConflictModuleRegistry moduleRegistry) {
+        this.mixinDisabler = mixinDisabler;
+        this.moduleRegistry = moduleRegistry;
+    }
+
+    /**
+     * Запуск наблюдения за каталогом конфигурации
+     */
+    public synchronized void start() {
+        if (thread != null) return;
+        Path directory = MixinDisabler.getBlacklistFile().getParent();
+        try {
+            Files.createDirectories(directory);
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            LOGGER.warn("Не удалось начать отслеживание {}, изменения конфигурации потребуют перезапуска", directory, e);
+            return;
+        }
+
+        thread = new Thread(this::run, "conflict-mediator-config-watch");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.debug("Отслеживание изменений конфигурации в {}", directory);
+    }
+
+    public synchronized void stop() {
+        if (thread == null) return;
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+        scheduler.shutdownNow();
+        thread = null;
+    }
+
+    private void run() {
+        Path blacklist = MixinDisabler.getBlacklistFile().getFileName();
+        Path modules = ConflictModuleRegistry.getDisabledModulesFile().getFileName();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // События потеряны - перечитываем оба файла
+                        scheduleBlacklist();
+                        scheduleModules();
+                    } else if (blacklist.equals(event.context())) {
+                        scheduleBlacklist();
+                    } else if (modules.equals(event.context())) {
+                        scheduleModules();
+                    }
+                }
+                if (!key.reset()) {
+                    LOGGER.warn("Каталог конфигурации больше не отслеживается");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Остановка наблюдения
+        }
+    }
+
+    private synchronized void scheduleBlacklist() {
+        if (pendingBlacklist != null) pendingBlacklist.cancel(false);
+        pendingBlacklist = scheduler.schedule(this::reloadBlacklist, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void scheduleModules() {
+        if (pendingModules != null) pendingModules.cancel(false);
+        pendingModules = scheduler.schedule(this::reloadModules, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void reloadBlacklist() {
+        try {
+            List<String> pendingRestart = mixinDisabler.reloadBlacklist();
+            if (pendingRestart.isEmpty()) {
+                LOGGER.debug("Черный список перечитан, изменений относительно запуска нет");
+            } else {
+                LOGGER.warn("Черный список Mixin изменен; вступит в силу после перезапуска: {}",
+                    String.join(", ", pendingRestart));
+            }
+        } catch (Exception e) {
+            // Файл может быть записан не полностью - прежнее состояние сохраняется
+            LOGGER.error("Не удалось перечитать черный список, прежнее состояние сохранено", e);
+        }
+    }
+
+    private void reloadModules() {
+        try {
+            List<String> changes = moduleRegistry.reloadDisabledModules();
+            if (!changes.isEmpty()) {
+                LOGGER.info("Отключенные модули обновлены без перезапуска: {}", String.join(", ", changes));
+            }
+        } catch (Exception e) {
+            LOGGER.error("Не удалось перечитать отключенные модули, прежнее состояние сохранено", e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.conflictmediator.core;
+
+import com.conflictmediator.analysis.DetectedConflict;
+import com.conflictmediator.collector.ConflictRecord;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Экспорт обнаруженных конфликтов во внешний сборщик
+ *
+ * Включается параметром -Dconflictmediator.export.url=http://127.0.0.1:25590/conflicts.
+ * Вызывающий поток только кладет конфликты в ограниченную очередь; при переполнении
+ * конфликты отбрасываются и учитываются. Отпечатки вычисляются и пакеты отправляются
+ * отдельным потоком, недоступность сборщика приводит к повторам с нарастающей паузой.
+ */
+public class ConflictExporter {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String EXPORT_URL = System.getProperty("conflictmediator.export.url");
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_BATCH = 128;
+    private static final long LINGER_MS = 500;
+    private static final long MAX_BACKOFF_MS = 60_000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ResolutionProfiles resolutionProfiles;
+    private final BlockingQueue<DetectedConflict> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder exported = new LongAdder();
+    private final URI endpoint;
+    private final String node;
+    private HttpClient client;
+    private Thread thread;
+
+    public ConflictExporter(ResolutionProfiles resolutionProfiles) {
+        this.resolutionProfiles = resolutionProfiles;
+        this.endpoint = parseEndpoint(EXPORT_URL);
+        this.node = endpoint == null ? null : System.getProperty("conflictmediator.export.node", defaultNode());
+    }
+
+    public boolean isEnabled() {
+        return endpoint != null;
+    }
+
+    /**
+     * Запуск потока отправки, если экспорт включен
+     */
+    public synchronized void start() {
+        if (endpoint == null || thread != null) return;
+        client = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+        thread = new Thread(this::run, "conflict-mediator-export");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Экспорт конфликтов в {} (сервер {})", endpoint, node);
+    }
+
+    /**
+     * Постановка конфликтов в очередь на отправку, никогда не блокирует
+     */
+    public void submit(List<DetectedConflict> conflicts) {
+        if (endpoint == null) return;
+        for (DetectedConflict conflict : conflicts) {
+            if (!queue.offer(conflict)) {
+                dropped.increment();
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getExportedCount() {
+        return exported.sum();
+    }
+
+    private void run() {
+        List<DetectedConflict> batch = new ArrayList<>(MAX_BATCH);
+        long backoff = 1000;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (batch.isEmpty()) {
+                    DetectedConflict first = queue.take();
+                    batch.add(first);
+                    // Короткое ожидание собирает всплеск конфликтов в один запрос
+                    Thread.sleep(LINGER_MS);
+                }
+                queue.drainTo(batch, MAX_BATCH - batch.size());
+
+                if (send(batch)) {
+                    exported.add(batch.size());
+                    batch.clear();
+                    backoff = 1000;
+                } else {
+                    Thread.sleep(backoff);
+                    backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // Ошибка формирования или отправки пакета не должна останавливать поток экспорта
+                LOGGER.warn("Пакет из {} конфликтов не экспортирован", batch.size(), e);
+                dropped.add(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean send(List<DetectedConflict> batch) throws InterruptedException {
+        String modpack = modpackFingerprint();
+        StringBuilder body = new StringBuilder(batch.size() * 128);
+        for (DetectedConflict conflict : batch) {
+            body.append(new ConflictRecord(fingerprint(conflict), modpack, node, conflict.getType().name(),
+                conflict.getMod1(), conflict.getMod2(), conflict.getDescription()).toLine()).append('\n');
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "text/tab-separated-values; charset=utf-8")
+            .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8))
+            .build();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 == 2) return true;
+            if (response.statusCode() / 100 == 4) {
+                // Повтор не поможет: пакет отбрасывается
+                LOGGER.warn("Сборщик конфликтов отклонил {} записей: {}", batch.size(), response.statusCode());
+                dropped.add(batch.size());
+                batch.clear();
+                return true;
+            }
+            LOGGER.debug("Сборщик конфликтов ответил {}", response.statusCode());
+        } catch (IOException e) {
+            LOGGER.debug("Сборщик конфликтов недоступен: {}", e.toString());
+        }
+        return false;
+    }
+
+    private String modpackFingerprint() {
+        ModpackFingerprint fingerprint = resolutionProfiles.getFingerprint();
+        return fingerprint == null ? "" : fingerprint.getFingerprint();
+    }
+
+    /**
+     * Отпечаток конфликта: первые 8 байт SHA-256 ключа идентичности
+     * Одинаков для одного конфликта на всех серверах независимо от текста ошибки
+     */
+    static long fingerprint(DetectedConflict conflict) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(conflict.getIdentityKey().getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Адрес сборщика или null, если экспорт выключен или адрес некорректен
+     */
+    private static URI parseEndpoint(String url) {
+        if (url == null || url.isBlank()) return null;
+        try {
+            URI uri = new URI(url.trim());
+            String scheme = uri.getScheme();
+            if (("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)) && uri.getHost() != null) {
+                return uri;
+            }
+        } catch (URISyntaxException ignored) {
+        }
+        LOGGER.error("Некорректный адрес экспорта конфликтов {}, экспорт выключен", url);
+        return null;
+    }
+
+    /**
+     * Имя хоста и каталог игры: несколько серверов на одной машине различаются
+     */
+    private static String defaultNode() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "unknown";
+        }
+        return host + ":" + FMLPaths.GAMEDIR.get().toAbsolutePath().normalize().getFileName();
+    }
+}
@@ -0,0 +1,264 @@
+package com.conflictmediator.core;
+
+import com.conflictmediator.analysis.ModAttribution;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Аварийный анализ OutOfMemoryError и StackOverflowError
+ *
+ * Обычный путь анализа выделяет память и сам может упасть, поэтому для таких ошибок все
+ * ресурсы готовятся при запуске: резерв кучи, поток анализа с большим стеком, буфер записи
+ * и открытый файл. При нехватке памяти резерв освобождается, ошибка передается потоку анализа
+ * без выделения памяти, и он определяет моды кадров через {@link ModAttribution#modIndexOf}
+ * и пишет короткую двоичную запись в logs/conflict_mediator_emergency.bin.
+ *
+ * Единственное выделение - копия стека в {@link Throwable#getStackTrace()}; к этому моменту
+ * резерв уже освобожден. Записи прошлого запуска выводятся в лог при следующем старте.
+ */
+public class EmergencyAnalyzer {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Path RECORD_FILE = FMLPaths.GAMEDIR.get().resolve("logs").resolve("conflict_mediator_emergency.bin");
+    private static final int RESERVE_BYTES = Integer.getInteger("conflictmediator.emergency.reserveMb", 8) << 20;
+    private static final long STACK_SIZE = 16L << 20;
+    private static final long WAIT_NANOS = 2_000_000_000L;
+    private static final int RECORD_MAGIC = 0x434D4552; // "CMER"
+    private static final int RECORD_VERSION = 1;
+    private static final int MAX_RECORD = 8192;
+    private static final int MAX_STRING = 256;
+    private static final int TOP_MODS = 8;
+    // Глубина поиска OOM/SOE в цепочке причин
+    private static final int MAX_CAUSE_DEPTH = 8;
+
+    /**
+     * Вид критической ошибки в записи
+     */
+    private static final short KIND_OUT_OF_MEMORY = 1;
+    private static final short KIND_STACK_OVERFLOW = 2;
+
+    private final ModAttribution attribution;
+    private final AtomicReference<Throwable> pending = new AtomicReference<>();
+    private volatile byte[] reserve;
+    private volatile long failingThreadId;
+    private volatile int completed;
+    private Thread thread;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private int[] modFrames;
+    private int[] touched;
+
+    public EmergencyAnalyzer(ModAttribution attribution) {
+        this.attribution = attribution;
+    }
+
+    /**
+     * Подготовка резерва, файла и потока анализа
+     */
+    public synchronized void start() {
+        if (thread != null) return;
+        logPreviousRecords();
+        try {
+            Files.createDirectories(RECORD_FILE.getParent());
+            channel = FileChannel.open(RECORD_FILE, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.warn("Аварийный анализ недоступен: не удалось открыть {}", RECORD_FILE, e);
+            return;
+        }
+
+        int modCount = Math.max(1, attribution.getModCount());
+        modFrames = new int[modCount];
+        touched = new int[modCount];
+        buffer = ByteBuffer.allocateDirect(MAX_RECORD);
+        reserve = new byte[RESERVE_BYTES];
+
+        thread = new Thread(null, this::run, "conflict-mediator-emergency", STACK_SIZE);
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.debug("Аварийный анализ готов: резерв {} МБ", RESERVE_BYTES >> 20);
+    }
+
+    /**
+     * Обработка ошибки аварийным путем, если в ней есть OutOfMemoryError или StackOverflowError
+     * Не выделяет памяти; ждет записи не дольше двух секунд.
+     *
+     * @return true, если ошибка критическая и обычный анализ выполнять нельзя
+     */
+    public boolean handle(Throwable error) {
+        Throwable critical = error;
+        int depth = 0;
+        while (critical != null && !(critical instanceof OutOfMemoryError || critical instanceof StackOverflowError)) {
+            if (++depth > MAX_CAUSE_DEPTH) return false;
+            critical = critical.getCause();
+        }
+        if (critical == null) return false;
+
+        if (critical instanceof OutOfMemoryError) {
+            reserve = null;
+        }
+        Thread analysisThread = thread;
+        if (analysisThread == null || Thread.currentThread() == analysisThread) return true;
+        // Одновременно анализируется одна ошибка, остальные отбрасываются
+        int ticket = completed;
+        if (!pending.compareAndSet(null, critical)) return true;
+
+        failingThreadId = Thread.currentThread().threadId();
+        LockSupport.unpark(analysisThread);
+        long deadline = System.nanoTime() + WAIT_NANOS;
+        while (completed == ticket && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(1_000_000L);
+        }
+        return true;
+    }
+
+    private void run() {
+        while (true) {
+            LockSupport.park(this);
+            Throwable error = pending.get();
+            if (error == null) continue;
+            try {
+                write(error);
+            } catch (Throwable ignored) {
+                // Сообщить о сбое аварийного пути негде
+            }
+            // Восстанавливаем резерв для следующей ошибки, если память уже освободилась
+            if (reserve == null) {
+                try {
+                    reserve = new byte[RESERVE_BYTES];
+                } catch (OutOfMemoryError ignored) {
+                }
+            }
+            pending.set(null);
+            completed++;
+        }
+    }
+
+    private void write(Throwable error) throws IOException {
+        StackTraceElement[] trace = error.getStackTrace();
+
+        // Кадры по модам и первый кадр вне платформы
+        int touchedCount = 0;
+        StackTraceElement firstModFrame = null;
+        for (StackTraceElement element : trace) {
+            int mod = attribution.modIndexOf(element.getClassName());
+            if (mod == ModAttribution.UNKNOWN || mod >= modFrames.length) continue;
+            if (modFrames[mod]++ == 0) touched[touchedCount++] = mod;
+            if (firstModFrame == null && !attribution.isPlatform(mod)) firstModFrame = element;
+        }
+
+        ByteBuffer out = buffer;
+        out.clear();
+        out.putInt(0); // длина записи
+        out.putInt(RECORD_MAGIC);
+        out.putShort((short) RECORD_VERSION);
+        out.putShort(error instanceof OutOfMemoryError ? KIND_OUT_OF_MEMORY : KIND_STACK_OVERFLOW);
+        out.putLong(System.currentTimeMillis());
+        out.putLong(failingThreadId);
+        out.putInt(trace.length);
+        putString(out, error.getClass().getName());
+        putString(out, error.getMessage());
+        putString(out, firstModFrame == null ? null : firstModFrame.getClassName());
+        putString(out, firstModFrame == null ? null : firstModFrame.getMethodName());
+
+        // Моды с наибольшим числом кадров, выбор без сортировки и выделения памяти
+        int mods = Math.min(TOP_MODS, touchedCount);
+        out.put((byte) mods);
+        for (int n = 0; n < mods; n++) {
+            int best = 0;
+            for (int i = 1; i < touchedCount; i++) {
+                if (modFrames[touched[i]] > modFrames[touched[best]]) best = i;
+            }
+            int mod = touched[best];
+            putString(out, attribution.modId(mod));
+            out.putInt(modFrames[mod]);
+            modFrames[mod] = -1;
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            modFrames[touched[i]] = 0;
+        }
+
+        out.putInt(0, out.position());
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Строка в записи: длина и символы ASCII, остальное заменяется на '?'
+     */
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        // Длины ограничены так, что запись всегда помещается в буфер
+        int length = Math.min(value.length(), MAX_STRING);
+        out.putShort((short) length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            out.put((byte) (c < 128 ? c : '?'));
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Вывод записей прошлого запуска в лог и перенос файла в .old
+     */
+    private static void logPreviousRecords() {
+        try {
+            if (!Files.exists(RECORD_FILE) || Files.size(RECORD_FILE) == 0) return;
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(RECORD_FILE));
+            while (in.remaining() >= 8) {
+                int start = in.position();
+                int length = in.getInt();
+                if (length < 8 || start + length > in.limit() || in.getInt() != RECORD_MAGIC) break;
+                in.getShort(); // версия
+                in.getShort(); // вид ошибки, совпадает с классом ошибки
+                long timestamp = in.getLong();
+                long threadId = in.getLong();
+                int frames = in.getInt();
+                String errorClass = getString(in);
+                String message = getString(in);
+                String frameClass = getString(in);
+                String frameMethod = getString(in);
+                StringBuilder mods = new StringBuilder();
+                int modCount = in.get();
+                for (int i = 0; i < modCount; i++) {
+                    if (i > 0) mods.append(", ");
+                    mods.append(getString(in)).append(" (").append(in.getInt()).append(')');
+                }
+                LOGGER.warn("Аварийная запись прошлого запуска: {} ({}), поток {}, {} кадров, время {}; "
+                        + "первый кадр мода: {}.{}; моды по кадрам: {}",
+                    errorClass, message, threadId, frames, Instant.ofEpochMilli(timestamp),
+                    frameClass, frameMethod, mods);
+                in.position(start + length);
+            }
+            Files.move(RECORD_FILE, RECORD_FILE.resolveSibling(RECORD_FILE.getFileName() + ".old"),
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Не удалось прочитать аварийные записи прошлого запуска", e);
+        }
+    }
+}
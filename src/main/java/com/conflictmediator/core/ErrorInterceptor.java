@@ -1,24 +1,35 @@
 package com.conflictmediator.core;
 
 import com.conflictmediator.ConflictMediator;
+import com.conflictmediator.analysis.CapturedError;
 import com.conflictmediator.analysis.ConflictAnalyzer;
 import com.conflictmediator.analysis.DetectedConflict;
+import com.conflictmediator.analysis.FrameDictionary;
 import com.conflictmediator.gui.ConflictResolutionScreen;
+import com.conflictmediator.gui.LoadingErrorScreenListener;
 import net.minecraft.client.Minecraft;
+import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LoadingFailedException;
+import net.minecraftforge.fml.ModLoader;
+import net.minecraftforge.fml.ModLoadingWarning;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLLoadCompleteEvent;
+import net.minecraftforge.fml.loading.FMLEnvironment;
 import net.minecraftforge.fml.loading.FMLLoader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 // MixinApplyError может быть недоступен, используем общий Throwable
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Перехватчик ошибок загрузки модов
@@ -27,11 +38,17 @@ public class ErrorInterceptor {
     private static final Logger LOGGER = LogManager.getLogger();
     private final ConflictMediator mediator;
     private final ConflictAnalyzer analyzer;
+    private final FrameDictionary frameDictionary = new FrameDictionary();
+    private final ExecutorService reportExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "conflict-mediator-reports");
+        thread.setDaemon(true);
+        return thread;
+    });
     private boolean guiInitialized = false;
     
     public ErrorInterceptor(ConflictMediator mediator) {
         this.mediator = mediator;
-        this.analyzer = new ConflictAnalyzer();
+        this.analyzer = new ConflictAnalyzer(mediator.getModAttribution(), mediator.getDuplicateClassIndex());
     }
     
     /**
@@ -40,11 +57,33 @@ public class ErrorInterceptor {
     public void register() {
         // Регистрация глобального обработчика необработанных исключений
         Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
+            // Контекст собирается только после проверки на OOM/SOE, чтобы не выделять память
+            if (mediator.getEmergencyAnalyzer().handle(throwable)) return;
             handleError(throwable, "Uncaught exception in thread: " + thread.getName());
         });
         
         // Регистрация обработчика для Mixin ошибок
         MinecraftForge.EVENT_BUS.register(this);
+        
+        // Ошибки загрузки клиента Forge показывает своим экраном, не пробрасывая исключение
+        if (FMLEnvironment.dist == Dist.CLIENT) {
+            LoadingErrorScreenListener.register(this);
+        }
+    }
+    
+    /**
+     * Анализ предупреждений загрузки Forge
+     * Предупреждения не прерывают загрузку и не бросаются, поэтому забираются у {@link ModLoader}
+     * по ее завершении и анализируются одним пакетом
+     */
+    public void ingestLoadingWarnings() {
+        List<ModLoadingWarning> warnings = ModLoader.get().getWarnings();
+        if (warnings.isEmpty()) return;
+        List<Throwable> errors = new ArrayList<>(warnings.size());
+        for (ModLoadingWarning warning : warnings) {
+            errors.add(new LoadingWarning(warning.formatToString()));
+        }
+        handleErrorBatch(errors, "Предупреждения загрузки модов");
     }
     
     /**
@@ -53,33 +92,136 @@ public class ErrorInterceptor {
     public void handleError(Throwable error, String context) {
         if (error == null) return;
         
+        // OutOfMemoryError и StackOverflowError анализируются без выделения памяти
+        if (mediator.getEmergencyAnalyzer().handle(error)) return;
+        
+        // Параллельная загрузка собирает ошибки всех модов в одно исключение
+        if (error instanceof LoadingFailedException loadingFailed && !loadingFailed.getErrors().isEmpty()) {
+            handleErrorBatch(loadingFailed.getErrors(), context);
+            return;
+        }
+        
         LOGGER.error("Обнаружена ошибка загрузки: {}", context, error);
         
         // Анализ конфликта
         List<DetectedConflict> conflicts = analyzer.analyzeError(error);
+        processConflicts(conflicts, List.of(capture(error)));
+    }
+    
+    /**
+     * Обработка пакета ошибок одного этапа загрузки
+     * Ошибки анализируются параллельно, конфликты объединяются и показываются одним экраном
+     *
+     * Источники пакетов: экран ошибок загрузки Forge на клиенте, предупреждения {@link ModLoader}
+     * по завершении загрузки и {@link LoadingFailedException}, дошедшее до обработчика потока.
+     */
+    public void handleErrorBatch(Collection<? extends Throwable> errors, String context) {
+        if (errors.isEmpty()) return;
+        for (Throwable error : errors) {
+            if (mediator.getEmergencyAnalyzer().handle(error)) return;
+        }
+        
+        LOGGER.error("Обнаружено {} ошибок загрузки: {}", errors.size(), context);
+        List<DetectedConflict> conflicts = analyzer.analyzeBatch(errors);
+        // Стеки найденных конфликтов выводятся вместе с информацией о конфликте,
+        // полностью здесь логируются только ошибки, конфликт по которым не определен
+        for (Throwable error : errors) {
+            if (conflicts.isEmpty()) {
+                LOGGER.error("Ошибка загрузки", error);
+            } else {
+                LOGGER.error("Ошибка загрузки: {}", error.toString());
+            }
+        }
         
+        List<CapturedError> captured = new ArrayList<>(errors.size());
+        for (Throwable error : errors) {
+            captured.add(capture(error));
+        }
+        processConflicts(conflicts, captured);
+    }
+    
+    /**
+     * Захват ошибки в компактную форму, чтобы не удерживать Throwable и его граф объектов
+     */
+    private CapturedError capture(Throwable error) {
+        return CapturedError.capture(error, frameDictionary);
+    }
+    
+    private void processConflicts(List<DetectedConflict> conflicts, List<CapturedError> errors) {
         if (!conflicts.isEmpty()) {
             LOGGER.warn("Обнаружено {} потенциальных конфликтов", conflicts.size());
+            mediator.getConflictExporter().submit(conflicts);
             
-            // Пытаемся показать GUI для разрешения конфликта
-            showConflictResolutionGUI(conflicts, error);
+            // Сначала даем слушателям медиации разрешить конфликты программно
+            List<DetectedConflict> unresolved = mediate(conflicts);
+            if (unresolved.isEmpty()) {
+                LOGGER.info("Все конфликты разрешены слушателями медиации");
+                return;
+            }
+            
+            // Пытаемся показать GUI для разрешения оставшихся конфликтов
+            showConflictResolutionGUI(unresolved, errors);
         } else {
             // Если не удалось определить конфликт, логируем и продолжаем
             LOGGER.warn("Не удалось определить конфликт из ошибки");
         }
     }
     
+    /**
+     * Сообщение о конфликтах, обнаруженных без ошибки загрузки
+     * Конфликты проходят медиацию в фоновом потоке, чтобы не задерживать игровые потоки,
+     * неразрешенные записываются в лог без показа GUI
+     */
+    public void reportConflicts(List<DetectedConflict> conflicts, String context) {
+        if (conflicts.isEmpty()) return;
+        
+        LOGGER.warn("{}: обнаружено {} потенциальных конфликтов", context, conflicts.size());
+        List<DetectedConflict> snapshot = List.copyOf(conflicts);
+        mediator.getConflictExporter().submit(snapshot);
+        reportExecutor.execute(() -> {
+            for (DetectedConflict conflict : mediate(snapshot)) {
+                LOGGER.warn("Конфликт: {}", conflict);
+            }
+        });
+    }
+    
+    /**
+     * Медиация конфликтов через слушателей, возвращает неразрешенные конфликты
+     */
+    private List<DetectedConflict> mediate(List<DetectedConflict> conflicts) {
+        Map<DetectedConflict, MediationDispatcher.MediationResult> results =
+            mediator.getMediationDispatcher().dispatch(conflicts);
+        
+        List<DetectedConflict> unresolved = new ArrayList<>();
+        for (Map.Entry<DetectedConflict, MediationDispatcher.MediationResult> entry : results.entrySet()) {
+            if (entry.getValue().isHandled()) {
+                LOGGER.info("Конфликт {} обработан: {}", entry.getKey(), entry.getValue());
+            } else {
+                unresolved.add(entry.getKey());
+            }
+        }
+        return unresolved;
+    }
+    
     /**
      * Показ GUI для разрешения конфликта
      */
-    private void showConflictResolutionGUI(List<DetectedConflict> conflicts, Throwable error) {
+    private synchronized void showConflictResolutionGUI(List<DetectedConflict> conflicts, List<CapturedError> errors) {
+        // Экран показывается один раз, последующие конфликты только записываются в лог
+        if (guiInitialized) {
+            LOGGER.warn("Экран разрешения конфликтов уже открыт");
+            saveConflictInfo(conflicts, errors);
+            return;
+        }
+        
         // Проверяем, можем ли мы показать GUI
         if (!FMLLoader.isProduction() && Minecraft.getInstance() != null) {
             try {
+                guiInitialized = true;
                 Minecraft.getInstance().execute(() -> {
                     ConflictResolutionScreen screen = new ConflictResolutionScreen(
                         conflicts, 
-                        error,
+                        errors.get(0),
                         () -> {
                             // Callback после применения решений
                             LOGGER.info("Конфликты разрешены, перезагрузка...");
@@ -90,31 +232,42 @@ public class ErrorInterceptor {
                     Minecraft.getInstance().setScreen(screen);
                 });
             } catch (Exception e) {
+                guiInitialized = false;
                 LOGGER.error("Не удалось показать GUI разрешения конфликтов", e);
             }
         } else {
             // В production или на сервере - логируем и сохраняем информацию
             LOGGER.error("Конфликт обнаружен, но GUI недоступен. Информация сохранена в лог.");
-            saveConflictInfo(conflicts, error);
+            saveConflictInfo(conflicts, errors);
         }
     }
     
     /**
      * Сохранение информации о конфликте
      */
-    private void saveConflictInfo(List<DetectedConflict> conflicts, Throwable error) {
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        error.printStackTrace(pw);
+    private void saveConflictInfo(List<DetectedConflict> conflicts, List<CapturedError> errors) {
+        StringBuilder sb = new StringBuilder();
+        for (CapturedError error : errors) {
+            sb.append(error.format());
+        }
         
         LOGGER.error("=== КОНФЛИКТ ОБНАРУЖЕН ===");
-        LOGGER.error("Стек трейс:\n{}", sw.toString());
+        LOGGER.error("Стек трейс:\n{}", sb);
         for (DetectedConflict conflict : conflicts) {
             LOGGER.error("Конфликт: {}", conflict);
         }
         LOGGER.error("=== КОНЕЦ ИНФОРМАЦИИ О КОНФЛИКТЕ ===");
     }
     
+    /**
+     * Предупреждение загрузки в форме исключения для общего анализа по тексту сообщения
+     */
+    private static final class LoadingWarning extends RuntimeException {
+        LoadingWarning(String message) {
+            super(message, null, false, false);
+        }
+    }
+    
     /**
      * Перехват ошибок Mixin
      * Примечание: MixinApplyError может быть недоступен, поэтому перехватываем через общий обработчик
@@ -0,0 +1,446 @@
+package com.conflictmediator.core;
+
+import com.conflictmediator.analysis.DetectedConflict;
+import com.conflictmediator.api.ConflictMediationEvent;
+import com.conflictmediator.api.ConflictMediationListener;
+import net.minecraftforge.common.MinecraftForge;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Диспетчер медиации конфликтов
+ *
+ * Рассылает пакет конфликтов слушателям параллельно в ограниченном пуле потоков,
+ * чтобы медленный слушатель не блокировал поток загрузки.
+ *
+ * Правила слияния результатов для одного конфликта:
+ * 1. Побеждает первая по времени завершения авторитетная резолюция ({@code setResolution}),
+ *    более поздние резолюции игнорируются и логируются.
+ * 2. Если резолюций нет, но хотя бы один слушатель вызвал {@code setHandled(true)},
+ *    конфликт считается обработанным без резолюции.
+ * 3. Результаты, пришедшие после дедлайна, игнорируются; незавершенные слушатели прерываются.
+ *
+ * У каждого слушателя не больше одной задачи в пуле: конфликты ставятся в его очередь
+ * и обрабатываются по одному, конфликты с истекшим дедлайном пропускаются. Поток слушателя,
+ * не вернувшийся после дедлайна, считается зависшим: пул получает замену (не больше
+ * {@code conflictmediator.mediation.maxStuckThreads}), а слушатель пропускается до возврата
+ * потока. После нескольких таймаутов подряд слушатель снимается с регистрации.
+ */
+public class MediationDispatcher {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final long DEADLINE_MS = Long.getLong("conflictmediator.mediation.deadlineMs", 2000L);
+    private static final int POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int MAX_CONSECUTIVE_TIMEOUTS = Integer.getInteger("conflictmediator.mediation.maxTimeouts", 3);
+    private static final int MAX_REPLACED_THREADS = Integer.getInteger("conflictmediator.mediation.maxStuckThreads", 8);
+    // Отметка слушателя, поток которого не вернулся после дедлайна
+    private static final Object OVERDUE = new Object();
+
+    /**
+     * Идентификатор встроенного слушателя, публикующего событие в {@link MinecraftForge#EVENT_BUS}
+     */
+    public static final String FORGE_EVENT_BUS_LISTENER = "forge_event_bus";
+
+    private final Map<String, ListenerWorker> listeners = new ConcurrentHashMap<>();
+    private final Map<String, ListenerStats> stats = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final long deadlineNanos;
+    private int stuckThreads = 0;
+
+    public MediationDispatcher() {
+        this(TimeUnit.MILLISECONDS.toNanos(DEADLINE_MS));
+    }
+
+    public MediationDispatcher(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        AtomicInteger threadCounter = new AtomicInteger();
+        // Очередь не ограничена: в ней не больше одной задачи на слушателя
+        this.executor = new ThreadPoolExecutor(
+            POOL_SIZE, POOL_SIZE,
+            30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "conflict-mediation-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+
+        // Подписчики @SubscribeEvent продолжают получать событие через шину Forge
+        registerListener(FORGE_EVENT_BUS_LISTENER, MinecraftForge.EVENT_BUS::post);
+    }
+
+    /**
+     * Регистрация слушателя медиации
+     */
+    public void registerListener(String id, ConflictMediationListener listener) {
+        ListenerStats listenerStats = stats.computeIfAbsent(id, k -> new ListenerStats());
+        listeners.put(id, new ListenerWorker(id, listener, listenerStats));
+        LOGGER.debug("Зарегистрирован слушатель медиации {}", id);
+    }
+
+    /**
+     * Удаление слушателя медиации
+     */
+    public void unregisterListener(String id) {
+        if (listeners.remove(id) != null) {
+            LOGGER.debug("Слушатель медиации {} снят с регистрации", id);
+        }
+    }
+
+    /**
+     * Медиация пакета конфликтов. Блокирует вызывающий поток не дольше дедлайна.
+     */
+    public Map<DetectedConflict, MediationResult> dispatch(List<DetectedConflict> conflicts) {
+        Map<DetectedConflict, MediationResult> results = new LinkedHashMap<>();
+        if (conflicts.isEmpty()) return results;
+
+        List<ListenerWorker> snapshot = new ArrayList<>(listeners.values());
+        if (snapshot.isEmpty()) {
+            for (DetectedConflict conflict : conflicts) {
+                results.put(conflict, MediationResult.UNRESOLVED);
+            }
+            return results;
+        }
+
+        // Все конфликты пакета делят общий дедлайн
+        long deadline = System.nanoTime() + deadlineNanos;
+        List<Mediation> mediations = new ArrayList<>(conflicts.size());
+        for (DetectedConflict conflict : conflicts) {
+            mediations.add(new Mediation(conflict, snapshot.size(), deadline));
+        }
+        for (ListenerWorker worker : snapshot) {
+            // Зависание могло начаться в прошлом пакете, разрешенном раньше дедлайна
+            checkOverdue(worker, System.nanoTime());
+            enqueue(worker, mediations);
+        }
+
+        for (Mediation mediation : mediations) {
+            results.put(mediation.conflict, mediation.await());
+        }
+        long now = System.nanoTime();
+        for (ListenerWorker worker : snapshot) {
+            checkOverdue(worker, now);
+        }
+        return results;
+    }
+
+    private void enqueue(ListenerWorker worker, List<Mediation> mediations) {
+        if (worker.current.get() == OVERDUE) {
+            // Поток слушателя еще не вернулся после дедлайна - пакет ему не отдается
+            worker.stats.skipped.add(mediations.size());
+            for (Mediation mediation : mediations) {
+                mediation.listenerFinished();
+            }
+            countTimeout(worker);
+            return;
+        }
+        worker.pending.addAll(mediations);
+        schedule(worker);
+    }
+
+    private void schedule(ListenerWorker worker) {
+        if (worker.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(worker));
+        }
+    }
+
+    /**
+     * Обработка очереди слушателя в одном потоке пула
+     */
+    private void drain(ListenerWorker worker) {
+        try {
+            Mediation mediation;
+            while ((mediation = worker.pending.poll()) != null) {
+                if (System.nanoTime() - mediation.deadline >= 0) {
+                    worker.stats.skipped.increment();
+                    mediation.listenerFinished();
+                    continue;
+                }
+                runListener(worker, mediation);
+            }
+        } finally {
+            worker.scheduled.set(false);
+        }
+        // Конфликты, поставленные после опустошения очереди
+        if (!worker.pending.isEmpty()) {
+            schedule(worker);
+        }
+    }
+
+    private void runListener(ListenerWorker worker, Mediation mediation) {
+        String id = worker.id;
+        ListenerStats listenerStats = worker.stats;
+        ConflictMediationEvent event = new ConflictMediationEvent(mediation.conflict);
+        worker.thread = Thread.currentThread();
+        worker.current.set(mediation);
+        long start = System.nanoTime();
+        try {
+            worker.listener.onConflictMediation(event);
+        } catch (Throwable t) {
+            listenerStats.failures.increment();
+            LOGGER.warn("Слушатель медиации {} завершился с ошибкой", id, t);
+        } finally {
+            listenerStats.record(System.nanoTime() - start);
+            if (worker.current.getAndSet(null) == OVERDUE) {
+                listenerStats.stuck.decrementAndGet();
+                adjustStuckThreads(-1);
+            } else {
+                listenerStats.consecutiveTimeouts.set(0);
+            }
+            // Прерывание по дедлайну не должно достаться следующему конфликту
+            Thread.interrupted();
+        }
+
+        if (event.getResolution() != null) {
+            MediationResult result = MediationResult.resolved(id, event.getResolution());
+            if (!mediation.winner.complete(result)) {
+                LOGGER.debug("Резолюция {} от {} отклонена: конфликт уже разрешен", event.getResolution(), id);
+            }
+        } else if (event.isHandled()) {
+            mediation.handledBy.compareAndSet(null, id);
+        }
+        mediation.listenerFinished();
+    }
+
+    /**
+     * Отметка слушателя, занятого конфликтом с истекшим дедлайном, как зависшего
+     */
+    private void checkOverdue(ListenerWorker worker, long now) {
+        if (!(worker.current.get() instanceof Mediation mediation) || now - mediation.deadline < 0) return;
+        if (!worker.current.compareAndSet(mediation, OVERDUE)) return;
+
+        LOGGER.warn("Слушатель медиации {} не уложился в дедлайн для {}", worker.id, mediation.conflict);
+        worker.stats.timeouts.increment();
+        worker.stats.stuck.incrementAndGet();
+        Thread thread = worker.thread;
+        if (thread != null) thread.interrupt();
+        // Пока поток занят, пул работает с заменой
+        adjustStuckThreads(1);
+        countTimeout(worker);
+    }
+
+    private void countTimeout(ListenerWorker worker) {
+        if (worker.stats.consecutiveTimeouts.incrementAndGet() >= MAX_CONSECUTIVE_TIMEOUTS
+                && listeners.remove(worker.id, worker)) {
+            LOGGER.error("Слушатель медиации {} отключен: {} таймаутов подряд", worker.id, MAX_CONSECUTIVE_TIMEOUTS);
+        }
+    }
+
+    /**
+     * Размер пула: основные потоки и замены потоков, занятых зависшими слушателями
+     */
+    private synchronized void adjustStuckThreads(int delta) {
+        stuckThreads += delta;
+        int size = POOL_SIZE + Math.min(stuckThreads, MAX_REPLACED_THREADS);
+        if (size > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(size);
+            executor.setCorePoolSize(size);
+        } else {
+            executor.setCorePoolSize(size);
+            executor.setMaximumPoolSize(size);
+        }
+    }
+
+    /**
+     * Статистика задержек по слушателям
+     */
+    public Map<String, ListenerStats> getListenerStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Вывод статистики слушателей в лог
+     */
+    public void logStats() {
+        for (Map.Entry<String, ListenerStats> entry : stats.entrySet()) {
+            LOGGER.info("Слушатель медиации {}: {}", entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Слушатель с очередью конфликтов; в пуле не больше одной его задачи
+     */
+    private static final class ListenerWorker {
+        final String id;
+        final ConflictMediationListener listener;
+        final ListenerStats stats;
+        final Queue<Mediation> pending = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // Обрабатываемый конфликт, null или OVERDUE
+        final AtomicReference<Object> current = new AtomicReference<>();
+        volatile Thread thread;
+
+        ListenerWorker(String id, ConflictMediationListener listener, ListenerStats stats) {
+            this.id = id;
+            this.listener = listener;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * Состояние медиации одного конфликта
+     */
+    private static final class Mediation {
+        final DetectedConflict conflict;
+        final long deadline;
+        final CompletableFuture<MediationResult> winner = new CompletableFuture<>();
+        final AtomicReference<String> handledBy = new AtomicReference<>();
+        final AtomicInteger remaining;
+
+        Mediation(DetectedConflict conflict, int listenerCount, long deadline) {
+            this.conflict = conflict;
+            this.deadline = deadline;
+            this.remaining = new AtomicInteger(listenerCount);
+        }
+
+        void listenerFinished() {
+            if (remaining.decrementAndGet() == 0) {
+                winner.complete(fallback(false));
+            }
+        }
+
+        MediationResult fallback(boolean timedOut) {
+            String handler = handledBy.get();
+            if (handler != null) return MediationResult.handled(handler, timedOut);
+            return timedOut ? MediationResult.TIMED_OUT : MediationResult.UNRESOLVED;
+        }
+
+        MediationResult await() {
+            try {
+                return winner.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                MediationResult result = fallback(true);
+                // Завершаем future, чтобы опоздавшие резолюции были отклонены
+                if (!winner.complete(result)) {
+                    result = winner.getNow(result);
+                }
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return fallback(true);
+            } catch (ExecutionException e) {
+                return fallback(false);
+            }
+        }
+    }
+
+    /**
+     * Итог медиации конфликта
+     */
+    public static final class MediationResult {
+        public static final MediationResult UNRESOLVED = new MediationResult(null, null, false, false);
+        public static final MediationResult TIMED_OUT = new MediationResult(null, null, false, true);
+
+        private final String listenerId;
+        private final String resolution;
+        private final boolean handled;
+        private final boolean timedOut;
+
+        private MediationResult(String listenerId, String resolution, boolean handled, boolean timedOut) {
+            this.listenerId = listenerId;
+            this.resolution = resolution;
+            this.handled = handled;
+            this.timedOut = timedOut;
+        }
+
+        static MediationResult resolved(String listenerId, String resolution) {
+            return new MediationResult(listenerId, resolution, true, false);
+        }
+
+        static MediationResult handled(String listenerId, boolean timedOut) {
+            return new MediationResult(listenerId, null, true, timedOut);
+        }
+
+        public String getListenerId() {
+            return listenerId;
+        }
+
+        public String getResolution() {
+            return resolution;
+        }
+
+        public boolean isHandled() {
+            return handled;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        @Override
+        public String toString() {
+            if (resolution != null) return String.format("resolved[%s] by %s", resolution, listenerId);
+            if (handled) return "handled by " + listenerId;
+            return timedOut ? "timed out" : "unresolved";
+        }
+    }
+
+    /**
+     * Статистика задержек слушателя
+     */
+    public static final class ListenerStats {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+        private final AtomicInteger stuck = new AtomicInteger();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            invocations.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        public long getAverageNanos() {
+            long count = invocations.sum();
+            return count == 0 ? 0 : totalNanos.sum() / count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public long getTimeouts() {
+            return timeouts.sum();
+        }
+
+        public long getSkipped() {
+            return skipped.sum();
+        }
+
+        /**
+         * Число потоков, занятых слушателем после истечения дедлайна
+         */
+        public int getStuck() {
+            return stuck.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("вызовов=%d, среднее=%.2f мс, максимум=%.2f мс, ошибок=%d, таймаутов=%d, "
+                    + "пропущено=%d, зависших потоков=%d",
+                getInvocations(), getAverageNanos() / 1e6, getMaxNanos() / 1e6,
+                getFailures(), getTimeouts(), getSkipped(), getStuck());
+        }
+    }
+}
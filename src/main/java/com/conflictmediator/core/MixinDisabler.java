@@ -2,7 +2,10 @@ package com.conflictmediator.core;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import net.minecraftforge.fml.loading.FMLPaths;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,28 +17,30 @@ import java.util.*;
 
 /**
  * Система отключения Mixin
+ *
+ * Набор отключенных Mixin - неизменяемое множество за volatile-ссылкой: проверки не
+ * блокируются, изменения выполняются копированием при записи. Mixin применяются при загрузке
+ * классов, поэтому изменения относительно состояния на момент запуска вступают в силу
+ * только после перезапуска.
  */
 public class MixinDisabler {
     private static final Logger LOGGER = LogManager.getLogger();
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final Path BLACKLIST_FILE = FMLPaths.CONFIGDIR.get().resolve("conflict_mediator_blacklist.json");
     
-    private final Set<String> disabledMixins = new HashSet<>();
-    private final Map<String, Set<String>> disabledMixinsByMod = new HashMap<>();
+    private volatile Set<String> disabledMixins = Set.of();
+    // Черный список, прочитанный при запуске: именно он действует до перезапуска
+    private volatile Set<String> startupMixins = Set.of();
     
     /**
      * Отключение Mixin класса
      */
-    public void disableMixin(String mixinClass) {
+    public synchronized void disableMixin(String mixinClass) {
         if (mixinClass == null || mixinClass.isEmpty()) return;
         
-        disabledMixins.add(mixinClass);
-        
-        // Извлекаем modid из имени класса
-        String modid = extractModidFromMixin(mixinClass);
-        if (modid != null) {
-            disabledMixinsByMod.computeIfAbsent(modid, k -> new HashSet<>()).add(mixinClass);
-        }
+        Set<String> updated = new HashSet<>(disabledMixins);
+        updated.add(mixinClass);
+        disabledMixins = Set.copyOf(updated);
         
         LOGGER.info("Mixin отключен: {}", mixinClass);
         
@@ -55,36 +60,84 @@ public class MixinDisabler {
     /**
      * Загрузка черного списка из файла
      */
-    public void loadBlacklist() {
+    public synchronized void loadBlacklist() {
         if (!Files.exists(BLACKLIST_FILE)) {
             LOGGER.debug("Файл черного списка не найден: {}", BLACKLIST_FILE);
+            startupMixins = disabledMixins;
             return;
         }
         
         try {
-            String json = Files.readString(BLACKLIST_FILE);
-            Map<String, List<String>> data = GSON.fromJson(json, 
-                new TypeToken<Map<String, List<String>>>(){}.getType());
-            
-            if (data != null && data.containsKey("disabled_mixins")) {
-                List<String> mixins = data.get("disabled_mixins");
-                for (String mixin : mixins) {
-                    disabledMixins.add(mixin);
-                }
-                LOGGER.info("Загружено {} отключенных Mixin из черного списка", mixins.size());
-            }
-        } catch (IOException e) {
+            Set<String> mixins = readBlacklist();
+            Set<String> merged = new HashSet<>(disabledMixins);
+            merged.addAll(mixins);
+            disabledMixins = Set.copyOf(merged);
+            LOGGER.info("Загружено {} отключенных Mixin из черного списка", mixins.size());
+        } catch (IOException | RuntimeException e) {
             LOGGER.error("Ошибка при загрузке черного списка", e);
         }
+        startupMixins = disabledMixins;
+    }
+    
+    /**
+     * Перечитывание черного списка с заменой набора отключенных Mixin
+     * При ошибке разбора состояние не меняется.
+     *
+     * @return Mixin, изменение которых относительно запуска требует перезапуска
+     *         ("+" - будет отключен, "-" - будет снова применен)
+     */
+    public List<String> reloadBlacklist() throws IOException {
+        Set<String> mixins = Files.exists(BLACKLIST_FILE) ? readBlacklist() : Set.of();
+        synchronized (this) {
+            disabledMixins = mixins;
+        }
+        
+        List<String> pendingRestart = new ArrayList<>();
+        Set<String> startup = startupMixins;
+        for (String mixin : mixins) {
+            if (!startup.contains(mixin)) pendingRestart.add("+" + mixin);
+        }
+        for (String mixin : startup) {
+            if (!mixins.contains(mixin)) pendingRestart.add("-" + mixin);
+        }
+        Collections.sort(pendingRestart);
+        return pendingRestart;
+    }
+    
+    /**
+     * Чтение списка disabled_mixins; остальные поля файла (disabled_by_mod) не используются
+     */
+    private static Set<String> readBlacklist() throws IOException {
+        JsonElement root = JsonParser.parseString(Files.readString(BLACKLIST_FILE));
+        if (!root.isJsonObject()) return Set.of();
+        JsonObject object = root.getAsJsonObject();
+        if (!object.has("disabled_mixins") || !object.get("disabled_mixins").isJsonArray()) return Set.of();
+        
+        Set<String> mixins = new HashSet<>();
+        JsonArray array = object.getAsJsonArray("disabled_mixins");
+        for (JsonElement element : array) {
+            if (element.isJsonPrimitive()) mixins.add(element.getAsString());
+        }
+        return Set.copyOf(mixins);
     }
     
     /**
      * Сохранение черного списка в файл
      */
     public void saveBlacklist() {
+        Set<String> mixins = disabledMixins;
+        Map<String, Set<String>> byMod = new TreeMap<>();
+        for (String mixin : mixins) {
+            // Извлекаем modid из имени класса
+            String modid = extractModidFromMixin(mixin);
+            if (modid != null) {
+                byMod.computeIfAbsent(modid, k -> new TreeSet<>()).add(mixin);
+            }
+        }
+        
         Map<String, Object> data = new HashMap<>();
-        data.put("disabled_mixins", new ArrayList<>(disabledMixins));
-        data.put("disabled_by_mod", disabledMixinsByMod);
+        data.put("disabled_mixins", new ArrayList<>(mixins));
+        data.put("disabled_by_mod", byMod);
         
         try {
             Files.createDirectories(BLACKLIST_FILE.getParent());
@@ -108,6 +161,17 @@ public class MixinDisabler {
     }
     
     public Set<String> getDisabledMixins() {
-        return Collections.unmodifiableSet(disabledMixins);
+        return disabledMixins;
+    }
+    
+    /**
+     * Есть ли изменения черного списка, ожидающие перезапуска
+     */
+    public boolean isRestartPending() {
+        return !disabledMixins.equals(startupMixins);
+    }
+    
+    public static Path getBlacklistFile() {
+        return BLACKLIST_FILE;
     }
 }
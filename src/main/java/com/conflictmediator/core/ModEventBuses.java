@@ -0,0 +1,32 @@
+package com.conflictmediator.core;
+
+import net.minecraftforge.eventbus.api.IEventBus;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.fml.javafmlmod.FMLModContainer;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Доступ к шинам событий всех загруженных модов
+ *
+ * События жизненного цикла и регистрации рассылаются в шину каждого мода отдельно,
+ * поэтому для наблюдения за чужими модами нужно подписываться на их шины.
+ */
+public final class ModEventBuses {
+    private ModEventBuses() {
+    }
+
+    /**
+     * Обход шин событий всех Java-модов
+     */
+    public static void forEach(BiConsumer<String, IEventBus> consumer) {
+        ModList modList = ModList.get();
+        if (modList == null) return;
+
+        modList.forEachModContainer((modid, container) -> {
+            if (container instanceof FMLModContainer fmlContainer) {
+                consumer.accept(modid, fmlContainer.getEventBus());
+            }
+        });
+    }
+}
@@ -0,0 +1,187 @@
+package com.conflictmediator.core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.forgespi.language.IModFileInfo;
+import net.minecraftforge.forgespi.language.IModInfo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отпечаток набора модов (модпака)
+ *
+ * Строится по modid, версиям и SHA-256 файлов модов. Хэши файлов кэшируются
+ * по пути, размеру и времени изменения, поэтому повторный запуск не перечитывает jar.
+ */
+public class ModpackFingerprint {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Path HASH_CACHE_FILE = FMLPaths.CONFIGDIR.get().resolve("conflict_mediator_jar_hashes.json");
+    /**
+     * Хэш модов из каталогов, содержимое которых не хэшируется
+     */
+    public static final String NO_HASH = "none";
+
+    private final Map<String, ModEntry> mods;
+    private final Map<Path, String> jarHashes;
+    private final String fingerprint;
+
+    private ModpackFingerprint(Map<String, ModEntry> mods, Map<Path, String> jarHashes) {
+        this.mods = mods;
+        this.jarHashes = jarHashes;
+        this.fingerprint = computeFingerprint(mods);
+    }
+
+    /**
+     * Вычисление отпечатка текущего набора модов
+     */
+    public static ModpackFingerprint compute() {
+        Map<String, CachedHash> cache = loadCache();
+        Map<Path, String> jarHashes = new ConcurrentHashMap<>();
+        List<IModFileInfo> files = ModList.get().getModFiles();
+
+        // Файлы хэшируются параллельно
+        files.parallelStream().forEach(fileInfo -> {
+            Path path = fileInfo.getFile().getFilePath();
+            jarHashes.put(path, hashFile(path, cache));
+        });
+
+        Map<String, ModEntry> mods = new TreeMap<>();
+        for (IModFileInfo fileInfo : files) {
+            String hash = jarHashes.get(fileInfo.getFile().getFilePath());
+            for (IModInfo mod : fileInfo.getMods()) {
+                mods.put(mod.getModId(), new ModEntry(mod.getModId(), mod.getVersion().toString(), hash));
+            }
+        }
+
+        // В кэше остаются только файлы текущего набора
+        Set<String> currentKeys = new HashSet<>();
+        for (Path path : jarHashes.keySet()) {
+            currentKeys.add(path.toAbsolutePath().toString());
+        }
+        cache.keySet().retainAll(currentKeys);
+        saveCache(cache);
+        return new ModpackFingerprint(Collections.unmodifiableMap(mods), Collections.unmodifiableMap(jarHashes));
+    }
+
+    private static String computeFingerprint(Map<String, ModEntry> mods) {
+        MessageDigest digest = sha256();
+        for (ModEntry entry : mods.values()) {
+            digest.update((entry.modid() + "@" + entry.version() + "#" + entry.hash() + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    private static String hashFile(Path path, Map<String, CachedHash> cache) {
+        if (!Files.isRegularFile(path)) {
+            // Мод из каталога (среда разработки) - содержимое не хэшируется
+            return NO_HASH;
+        }
+        try {
+            long size = Files.size(path);
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            String key = path.toAbsolutePath().toString();
+            CachedHash cached = cache.get(key);
+            if (cached != null && cached.size == size && cached.modified == modified) {
+                return cached.sha256;
+            }
+
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = Files.newInputStream(path)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            cache.put(key, new CachedHash(size, modified, hash));
+            return hash;
+        } catch (IOException e) {
+            LOGGER.warn("Не удалось вычислить хэш {}", path, e);
+            return NO_HASH;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private static Map<String, CachedHash> loadCache() {
+        if (!Files.exists(HASH_CACHE_FILE)) return new ConcurrentHashMap<>();
+        try {
+            Map<String, CachedHash> data = GSON.fromJson(Files.readString(HASH_CACHE_FILE),
+                new TypeToken<Map<String, CachedHash>>(){}.getType());
+            return data != null ? new ConcurrentHashMap<>(data) : new ConcurrentHashMap<>();
+        } catch (Exception e) {
+            LOGGER.warn("Кэш хэшей модов поврежден и будет перестроен", e);
+            return new ConcurrentHashMap<>();
+        }
+    }
+
+    private static void saveCache(Map<String, CachedHash> cache) {
+        try {
+            Files.createDirectories(HASH_CACHE_FILE.getParent());
+            Files.writeString(HASH_CACHE_FILE, GSON.toJson(cache));
+        } catch (IOException e) {
+            LOGGER.warn("Ошибка при сохранении кэша хэшей модов", e);
+        }
+    }
+
+    /**
+     * Отпечаток набора модов
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Моды набора по modid
+     */
+    public Map<String, ModEntry> getMods() {
+        return mods;
+    }
+
+    /**
+     * SHA-256 файлов модов по пути
+     */
+    public Map<Path, String> getJarHashes() {
+        return jarHashes;
+    }
+
+    /**
+     * Мод набора: modid, версия и хэш файла
+     */
+    public record ModEntry(String modid, String version, String hash) {
+    }
+
+    private static final class CachedHash {
+        long size;
+        long modified;
+        String sha256;
+
+        CachedHash(long size, long modified, String sha256) {
+            this.size = size;
+            this.modified = modified;
+            this.sha256 = sha256;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.conflictmediator.core;
+
+import com.conflictmediator.analysis.ModAttribution;
+import com.conflictmediator.api.ConflictModuleRegistry;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Профили разрешения конфликтов, привязанные к отпечатку модпака
+ *
+ * Профиль содержит черный список Mixin и отключенные модули, сгруппированные по модам.
+ * Узел с тем же отпечатком применяет профиль целиком при запуске без анализа ошибок.
+ * Для отличающегося набора выбирается профиль с наибольшим числом совпадающих модов
+ * (modid, версия и хэш файла), и применяются только решения для этих модов.
+ */
+public class ResolutionProfiles {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Path PROFILES_DIR = FMLPaths.CONFIGDIR.get().resolve("conflict_mediator_profiles");
+    private static final int FORMAT_VERSION = 1;
+    // Группа для Mixin, владельца которых определить не удалось
+    private static final String UNKNOWN_MOD = "unknown";
+    // Отпечаток - шестнадцатеричный SHA-256; иное значение из чужого файла не должно стать путем
+    private static final Pattern FINGERPRINT_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final MixinDisabler mixinDisabler;
+    private final ConflictModuleRegistry moduleRegistry;
+    private final ModAttribution attribution;
+    private final CompletableFuture<ModpackFingerprint> fingerprintReady = new CompletableFuture<>();
+    private volatile ModpackFingerprint fingerprint;
+
+    public ResolutionProfiles(MixinDisabler mixinDisabler, ConflictModuleRegistry moduleRegistry,
+                              ModAttribution attribution) {
+        this.mixinDisabler = mixinDisabler;
+        this.moduleRegistry = moduleRegistry;
+        this.attribution = attribution;
+    }
+
+    /**
+     * Применение профиля для текущего набора модов
+     * Вызывается как можно раньше - из конструктора мода. Локальные решения узла загружаются
+     * сразу и до применения, поэтому профиль дополняет их, и сохраняется объединенное состояние.
+     *
+     * Отпечаток требует SHA-256 всех jar (при первом запуске - без кэша), поэтому вычисляется
+     * и применяется в фоновом потоке, не задерживая загрузку. Решения профиля для модулей
+     * действуют с момента применения, для Mixin - как и прежде, после перезапуска.
+     */
+    public void applyMatching() {
+        mixinDisabler.loadBlacklist();
+        moduleRegistry.loadDisabledModules();
+        
+        Thread thread = new Thread(() -> {
+            try {
+                applyMatchingProfile();
+            } catch (Exception e) {
+                LOGGER.error("Ошибка при применении профиля", e);
+            } finally {
+                fingerprintReady.complete(fingerprint);
+            }
+        }, "conflict-mediator-fingerprint");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void applyMatchingProfile() {
+        long start = System.nanoTime();
+        try {
+            fingerprint = ModpackFingerprint.compute();
+        } catch (Exception e) {
+            LOGGER.error("Не удалось вычислить отпечаток модпака", e);
+            return;
+        }
+        LOGGER.info("Отпечаток модпака: {} ({} модов), вычислен за {} мс", fingerprint.getFingerprint(),
+            fingerprint.getMods().size(), (System.nanoTime() - start) / 1_000_000);
+
+        Profile exact = readProfile(profileFile(fingerprint.getFingerprint()));
+        if (exact != null) {
+            int applied = apply(exact, null);
+            LOGGER.info("Применен профиль {} (ревизия {}): {} решений", exact.fingerprint, exact.revision, applied);
+            return;
+        }
+
+        // Точного профиля нет - ищем профиль с наибольшим пересечением модов
+        Profile best = null;
+        Set<String> bestCommon = Collections.emptySet();
+        for (Profile profile : listProfiles()) {
+            Set<String> common = commonMods(profile);
+            if (common.size() > bestCommon.size()) {
+                best = profile;
+                bestCommon = common;
+            }
+        }
+        if (best != null) {
+            int applied = apply(best, bestCommon);
+            LOGGER.info("Частично применен профиль {}: {} общих модов, {} решений",
+                best.fingerprint, bestCommon.size(), applied);
+        }
+    }
+
+    private Set<String> commonMods(Profile profile) {
+        Set<String> common = new HashSet<>();
+        if (profile.mods == null) return common;
+        for (Map.Entry<String, ModpackFingerprint.ModEntry> entry : profile.mods.entrySet()) {
+            if (entry.getValue().equals(fingerprint.getMods().get(entry.getKey()))) {
+                common.add(entry.getKey());
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Применение решений профиля; при allowedMods != null - только для перечисленных модов
+     */
+    private int apply(Profile profile, Set<String> allowedMods) {
+        int applied = 0;
+        if (profile.disabledMixins != null) {
+            for (Map.Entry<String, List<String>> entry : profile.disabledMixins.entrySet()) {
+                if (allowedMods != null && !allowedMods.contains(entry.getKey())) continue;
+                for (String mixin : entry.getValue()) {
+                    if (!mixinDisabler.isMixinDisabled(mixin)) {
+                        mixinDisabler.disableMixin(mixin);
+                        applied++;
+                    }
+                }
+            }
+        }
+        if (profile.disabledModules != null) {
+            for (Map.Entry<String, List<String>> entry : profile.disabledModules.entrySet()) {
+                if (allowedMods != null && !allowedMods.contains(entry.getKey())) continue;
+                for (String module : entry.getValue()) {
+                    if (!moduleRegistry.isModuleDisabled(entry.getKey(), module)) {
+                        moduleRegistry.disableModule(entry.getKey(), module);
+                        applied++;
+                    }
+                }
+            }
+        }
+
+        // Сохраняется объединенное состояние: локальные решения и добавленные из профиля
+        if (applied > 0) {
+            mixinDisabler.saveBlacklist();
+            moduleRegistry.saveDisabledModules();
+        }
+        return applied;
+    }
+
+    /**
+     * Сохранение текущих решений как профиля для текущего отпечатка
+     */
+    public Path saveCurrent() {
+        if (fingerprint == null) {
+            LOGGER.warn("Отпечаток модпака не вычислен, профиль не сохранен");
+            return null;
+        }
+
+        Path file = profileFile(fingerprint.getFingerprint());
+        Profile previous = readProfile(file);
+
+        Profile profile = new Profile();
+        profile.formatVersion = FORMAT_VERSION;
+        profile.fingerprint = fingerprint.getFingerprint();
+        profile.revision = previous != null ? previous.revision + 1 : 1;
+        profile.created = Instant.now().toString();
+        profile.mods = new TreeMap<>(fingerprint.getMods());
+        profile.disabledMixins = new TreeMap<>();
+        for (String mixin : mixinDisabler.getDisabledMixins()) {
+            String owner = attribution.modIdOf(mixin);
+            profile.disabledMixins.computeIfAbsent(owner != null ? owner : UNKNOWN_MOD, k -> new ArrayList<>()).add(mixin);
+        }
+        profile.disabledModules = new TreeMap<>();
+        for (Map.Entry<String, Set<String>> entry : moduleRegistry.getDisabledModules().entrySet()) {
+            profile.disabledModules.put(entry.getKey(), new ArrayList<>(new TreeSet<>(entry.getValue())));
+        }
+
+        try {
+            Files.createDirectories(PROFILES_DIR);
+            Files.writeString(file, GSON.toJson(profile));
+            LOGGER.info("Профиль разрешения конфликтов сохранен: {}", file);
+            return file;
+        } catch (IOException e) {
+            LOGGER.error("Ошибка при сохранении профиля", e);
+            return null;
+        }
+    }
+
+    /**
+     * Экспорт профиля текущего отпечатка в файл
+     */
+    public Path export(Path target) throws IOException {
+        Path file = saveCurrent();
+        if (file == null) throw new IOException("Профиль не сохранен");
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        return Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Импорт профиля из файла в каталог профилей
+     */
+    public Path importProfile(Path source) throws IOException {
+        if (!Files.exists(source)) throw new IOException("Файл не найден: " + source);
+        Profile profile = readProfile(source);
+        if (profile == null || profile.fingerprint == null) {
+            throw new IOException("Некорректный профиль: " + source);
+        }
+        if (!FINGERPRINT_PATTERN.matcher(profile.fingerprint).matches()) {
+            throw new IOException("Некорректный отпечаток в профиле: " + profile.fingerprint);
+        }
+        Path target = profileFile(profile.fingerprint).normalize();
+        if (!target.startsWith(PROFILES_DIR.normalize())) {
+            throw new IOException("Профиль вне каталога профилей: " + target);
+        }
+        Files.createDirectories(PROFILES_DIR);
+        return Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private List<Profile> listProfiles() {
+        List<Profile> profiles = new ArrayList<>();
+        if (!Files.isDirectory(PROFILES_DIR)) return profiles;
+        try (Stream<Path> files = Files.list(PROFILES_DIR)) {
+            files.filter(path -> path.toString().endsWith(".json"))
+                .map(this::readProfile)
+                .filter(Objects::nonNull)
+                .forEach(profiles::add);
+        } catch (IOException e) {
+            LOGGER.error("Ошибка при чтении каталога профилей", e);
+        }
+        return profiles;
+    }
+
+    private Profile readProfile(Path file) {
+        if (!Files.exists(file)) return null;
+        try {
+            Profile profile = GSON.fromJson(Files.readString(file), Profile.class);
+            if (profile == null) return null;
+            if (profile.formatVersion > FORMAT_VERSION) {
+                LOGGER.warn("Профиль {} создан более новой версией (формат {}), пропускаем", file, profile.formatVersion);
+                return null;
+            }
+            return profile;
+        } catch (Exception e) {
+            LOGGER.error("Ошибка при чтении профиля {}", file, e);
+            return null;
+        }
+    }
+
+    private static Path profileFile(String fingerprint) {
+        return PROFILES_DIR.resolve(fingerprint + ".json");
+    }
+
+    /**
+     * Текущий отпечаток модпака (null, пока не вычислен)
+     */
+    public ModpackFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Завершается после вычисления отпечатка и применения профиля; значение null при ошибке
+     */
+    public CompletableFuture<ModpackFingerprint> getFingerprintReady() {
+        return fingerprintReady;
+    }
+
+    /**
+     * Формат файла профиля
+     */
+    private static final class Profile {
+        @SerializedName("format_version")
+        int formatVersion;
+        String fingerprint;
+        int revision;
+        String created;
+        Map<String, ModpackFingerprint.ModEntry> mods;
+        @SerializedName("disabled_mixins")
+        Map<String, List<String>> disabledMixins;
+        @SerializedName("disabled_modules")
+        Map<String, List<String>> disabledModules;
+    }
+}
@@ -1,6 +1,7 @@
 package com.conflictmediator.gui;
 
 import com.conflictmediator.ConflictMediator;
+import com.conflictmediator.analysis.CapturedError;
 import com.conflictmediator.analysis.DetectedConflict;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.gui.components.Button;
@@ -18,14 +19,14 @@ import java.util.function.Consumer;
  */
 public class ConflictResolutionScreen extends Screen {
     private final List<DetectedConflict> conflicts;
-    private final Throwable error;
+    private final CapturedError error;
     private final Runnable onResolved;
     
     private final List<ConflictOption> options = new ArrayList<>();
     private int scrollOffset = 0;
     private static final int ITEMS_PER_PAGE = 8;
     
-    public ConflictResolutionScreen(List<DetectedConflict> conflicts, Throwable error, Runnable onResolved) {
+    public ConflictResolutionScreen(List<DetectedConflict> conflicts, CapturedError error, Runnable onResolved) {
         super(Component.literal("Разрешение конфликтов модов"));
         this.conflicts = conflicts;
         this.error = error;
@@ -150,6 +151,7 @@ public class ConflictResolutionScreen extends Screen {
         // Сохраняем конфигурацию
         ConflictMediator.getInstance().getMixinDisabler().saveBlacklist();
         ConflictMediator.getInstance().getModuleRegistry().saveDisabledModules();
+        ConflictMediator.getInstance().getResolutionProfiles().saveCurrent();
         
         // Вызываем callback
         if (onResolved != null) {
@@ -0,0 +1,49 @@
+package com.conflictmediator.gui;
+
+import com.conflictmediator.core.ErrorInterceptor;
+import net.minecraftforge.client.event.ScreenEvent;
+import net.minecraftforge.client.gui.LoadingErrorScreen;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.ModLoadingException;
+import net.minecraftforge.fml.util.ObfuscationReflectionHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Получение ошибок загрузки с экрана ошибок Forge
+ *
+ * На клиенте Forge перехватывает {@link net.minecraftforge.fml.LoadingFailedException} сам
+ * и показывает экран ошибок, поэтому исключение не доходит до обработчиков потока.
+ * Список ошибок забирается у экрана при его открытии и анализируется одним пакетом.
+ * Класс ссылается на клиентские классы и регистрируется только на клиенте.
+ */
+public final class LoadingErrorScreenListener {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private LoadingErrorScreenListener() {
+    }
+
+    public static void register(ErrorInterceptor errorInterceptor) {
+        MinecraftForge.EVENT_BUS.addListener((ScreenEvent.Opening event) -> {
+            if (event.getNewScreen() instanceof LoadingErrorScreen screen) {
+                onLoadingErrorScreen(errorInterceptor, screen);
+            }
+        });
+    }
+
+    private static void onLoadingErrorScreen(ErrorInterceptor errorInterceptor, LoadingErrorScreen screen) {
+        List<ModLoadingException> errors;
+        try {
+            errors = ObfuscationReflectionHelper.getPrivateValue(LoadingErrorScreen.class, screen, "modLoadErrors");
+        } catch (RuntimeException e) {
+            LOGGER.warn("Не удалось получить ошибки загрузки с экрана Forge", e);
+            return;
+        }
+        // Экран показывается и для одних предупреждений - их забирает ErrorInterceptor
+        if (errors != null && !errors.isEmpty()) {
+            errorInterceptor.handleErrorBatch(errors, "Экран ошибок загрузки Forge");
+        }
+    }
+}
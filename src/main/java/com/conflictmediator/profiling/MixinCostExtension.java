@@ -0,0 +1,182 @@
+package com.conflictmediator.profiling;
+
+import cpw.mods.modlauncher.Launcher;
+import cpw.mods.modlauncher.api.IEnvironment;
+import cpw.mods.modlauncher.api.ITransformerActivity;
+import cpw.mods.modlauncher.api.ITransformerAuditTrail;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+import org.spongepowered.asm.mixin.MixinEnvironment;
+import org.spongepowered.asm.mixin.extensibility.IMixinInfo;
+import org.spongepowered.asm.mixin.transformer.IMixinTransformer;
+import org.spongepowered.asm.mixin.transformer.ext.Extensions;
+import org.spongepowered.asm.mixin.transformer.ext.IExtension;
+import org.spongepowered.asm.mixin.transformer.ext.ITargetClassContext;
+
+import java.util.Set;
+
+/**
+ * Расширение Mixin, замеряющее применение Mixin к каждому целевому классу
+ *
+ * Собственное время между preApply и postApply (без применений к классам, загруженным изнутри)
+ * делится поровну между Mixin, примененными к классу: это оценка, а не замер каждого Mixin.
+ * Трансформеры ModLauncher, изменившие тот же класс, берутся из журнала ModLauncher.
+ * Замеры хранятся в стеке потока с именами целевых классов: если применение Mixin прервано
+ * исключением и postApply не вызван, postApply внешнего класса снимает оставшиеся записи.
+ * Размер класса до и после (через сериализацию ClassNode) считается только с
+ * -Dconflictmediator.transformProfiler.bytes=true и в замер времени не входит.
+ */
+public class MixinCostExtension implements IExtension {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final boolean MEASURE_BYTES = Boolean.getBoolean("conflictmediator.transformProfiler.bytes");
+    private static final int MAX_NESTING = 32;
+
+    private final TransformCostRecorder recorder;
+    private volatile ITransformerAuditTrail auditTrail;
+
+    // Применение Mixin может вызвать загрузку другого класса в том же потоке
+    private final ThreadLocal<ApplyStack> applyStack = ThreadLocal.withInitial(ApplyStack::new);
+
+    public MixinCostExtension(TransformCostRecorder recorder) {
+        this.recorder = recorder;
+        try {
+            this.auditTrail = Launcher.INSTANCE.environment().getProperty(IEnvironment.Keys.AUDITTRAIL.get()).orElse(null);
+        } catch (Throwable t) {
+            LOGGER.debug("Журнал трансформаций ModLauncher недоступен", t);
+        }
+    }
+
+    /**
+     * Регистрация расширения в активном трансформере Mixin
+     */
+    public static void install(TransformCostRecorder recorder) {
+        try {
+            Object transformer = MixinEnvironment.getCurrentEnvironment().getActiveTransformer();
+            if (transformer instanceof IMixinTransformer mixinTransformer
+                    && mixinTransformer.getExtensions() instanceof Extensions extensions) {
+                extensions.add(new MixinCostExtension(recorder));
+                // Список активных расширений пересчитывается только в checkActive
+                extensions.checkActive(MixinEnvironment.getCurrentEnvironment());
+                LOGGER.info("Замер стоимости применения Mixin включен");
+            } else {
+                LOGGER.warn("Активный трансформер Mixin не найден, замер стоимости Mixin недоступен");
+            }
+        } catch (Throwable t) {
+            LOGGER.warn("Не удалось зарегистрировать расширение Mixin", t);
+        }
+    }
+
+    @Override
+    public boolean checkActive(MixinEnvironment environment) {
+        return true;
+    }
+
+    @Override
+    public void preApply(ITargetClassContext context) {
+        long entry = System.nanoTime();
+        ApplyStack stack = applyStack.get();
+        String target = context.getClassInfo().getName();
+        // Класс не может трансформироваться внутри собственной трансформации: записи выше
+        // и сама запись остались от прерванного применения
+        int stale = stack.find(target);
+        if (stale >= 0) {
+            stack.depth = stale;
+        } else if (stack.depth == MAX_NESTING) {
+            stack.depth = 0;
+        }
+        stack.targets[stack.depth] = target;
+        stack.entries[stack.depth] = entry;
+        stack.childNanos[stack.depth] = 0;
+        stack.bytesIn[stack.depth] = MEASURE_BYTES ? size(context.getClassNode()) : 0;
+        stack.starts[stack.depth] = System.nanoTime();
+        stack.depth++;
+    }
+
+    @Override
+    public void postApply(ITargetClassContext context) {
+        long end = System.nanoTime();
+        ApplyStack stack = applyStack.get();
+        int depth = stack.find(context.getClassInfo().getName());
+        if (depth < 0) return;
+        // Записи выше найденной - от применений, прерванных исключением
+        stack.depth = depth;
+        stack.targets[depth] = null;
+
+        long bytesIn = stack.bytesIn[depth];
+        // Собственное время: применения Mixin к классам, загруженным изнутри, уже учтены отдельно
+        long nanos = Math.max(0, end - stack.starts[depth] - stack.childNanos[depth]);
+        long bytesOut = MEASURE_BYTES ? size(context.getClassNode()) : 0;
+
+        String className = context.getClassInfo().getName().replace('/', '.');
+        recordTransformers(className);
+        Set<IMixinInfo> mixins = context.getClassInfo().getAppliedMixins();
+        if (!mixins.isEmpty()) {
+            long share = nanos / mixins.size();
+            for (IMixinInfo mixin : mixins) {
+                recorder.record(mixin.getClassName(), bytesIn, bytesOut, share);
+            }
+        }
+        if (depth > 0) {
+            // Весь вложенный замер, включая подсчет размеров, вычитается из внешнего класса
+            stack.childNanos[depth - 1] += System.nanoTime() - stack.entries[depth];
+        }
+    }
+
+    /**
+     * Трансформеры ModLauncher и coremods, изменившие класс до Mixin, по журналу ModLauncher
+     * Время их работы журнал не содержит, учитывается только число классов
+     */
+    private void recordTransformers(String className) {
+        ITransformerAuditTrail trail = auditTrail;
+        if (trail == null) return;
+        try {
+            for (ITransformerActivity activity : trail.getActivityFor(className)) {
+                if (activity.getType() == ITransformerActivity.Type.TRANSFORMER) {
+                    recorder.recordTransformer(String.join(":", activity.getContext()));
+                }
+            }
+        } catch (RuntimeException e) {
+            auditTrail = null;
+            LOGGER.debug("Журнал трансформаций ModLauncher недоступен", e);
+        }
+    }
+
+    @Override
+    public void export(MixinEnvironment env, String name, boolean force, ClassNode classNode) {
+    }
+
+    /**
+     * Стек незавершенных применений Mixin в одном потоке
+     */
+    private static final class ApplyStack {
+        final String[] targets = new String[MAX_NESTING];
+        final long[] bytesIn = new long[MAX_NESTING];
+        final long[] starts = new long[MAX_NESTING];
+        // Начало замера с учетом подсчета размера и время вложенных применений
+        final long[] entries = new long[MAX_NESTING];
+        final long[] childNanos = new long[MAX_NESTING];
+        int depth;
+
+        /**
+         * Позиция записи целевого класса, начиная с вершины, или -1
+         */
+        int find(String target) {
+            for (int i = depth - 1; i >= 0; i--) {
+                if (target.equals(targets[i])) return i;
+            }
+            return -1;
+        }
+    }
+
+    private static long size(ClassNode node) {
+        try {
+            ClassWriter writer = new ClassWriter(0);
+            node.accept(writer);
+            return writer.toByteArray().length;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.conflictmediator.profiling;
+
+import com.conflictmediator.analysis.FrameDictionary;
+import com.conflictmediator.analysis.ModAttribution;
+import com.conflictmediator.core.ModEventBuses;
+import net.minecraftforge.eventbus.api.Event;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.IEventBus;
+import net.minecraftforge.fml.event.lifecycle.*;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Профилировщик запуска по модам
+ *
+ * Замеряет время обработчиков событий жизненного цикла каждого мода (слушатели с
+ * наивысшим и наинизшим приоритетом на шине мода) и периодически снимает стеки
+ * потоков загрузки. Сэмплы приписываются модам через {@link ModAttribution}.
+ * При завершении загрузки пишет ранжированный отчет и файл свернутых стеков
+ * (формат collapsed для flamegraph.pl / speedscope).
+ *
+ * Сэмплер работает с обычным приоритетом и по умолчанию раз в 50 мс, чтобы не отнимать
+ * процессор у потоков загрузки. Стеки хранятся как последовательности идентификаторов
+ * кадров из {@link FrameDictionary}; строки строятся только при записи отчета.
+ */
+public class StartupProfiler {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final boolean ENABLED = !"false".equals(System.getProperty("conflictmediator.profiler"));
+    private static final long INTERVAL_MS = Long.getLong("conflictmediator.profiler.intervalMs", 50L);
+    private static final int MAX_DEPTH = 96;
+    private static final long THREAD_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Path REPORT_FILE = FMLPaths.GAMEDIR.get().resolve("logs").resolve("conflict_mediator_startup.txt");
+    private static final Path COLLAPSED_FILE = FMLPaths.GAMEDIR.get().resolve("logs").resolve("conflict_mediator_startup.collapsed");
+
+    /**
+     * Фазы загрузки
+     */
+    public enum Phase {
+        CONSTRUCT("construct"),
+        COMMON_SETUP("common_setup"),
+        SIDED_SETUP("sided_setup"),
+        ENQUEUE_IMC("enqueue_imc"),
+        PROCESS_IMC("process_imc"),
+        LOAD_COMPLETE("load_complete"),
+        DEFERRED_WORK("enqueue_work");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final ModAttribution attribution;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, ModTimings> timings = new ConcurrentHashMap<>();
+    private volatile Phase currentPhase = Phase.CONSTRUCT;
+    private volatile boolean running = false;
+    private Thread samplerThread;
+
+    // Состояние сэмплера: изменяется потоком сэмплера под блокировкой, читается после остановки
+    private final Object sampleLock = new Object();
+    private final FrameDictionary frames = new FrameDictionary();
+    private final Map<StackKey, long[]> collapsedStacks = new HashMap<>();
+    // Ключ поиска переиспользуется: новый ключ создается только для еще не встречавшегося стека
+    private final StackKey probe = new StackKey(new int[MAX_DEPTH + 2], 0);
+    private long[][] samplesByMod = new long[0][];
+    private long unattributedSamples = 0;
+    private long totalSamples = 0;
+
+    public StartupProfiler(ModAttribution attribution) {
+        this.attribution = attribution;
+    }
+
+    /**
+     * Запуск профилировщика: подписка на шины модов и старт сэмплера
+     */
+    public void start(IEventBus ownBus) {
+        if (!ENABLED) {
+            LOGGER.debug("Профилировщик запуска отключен");
+            return;
+        }
+
+        ModEventBuses.forEach((modid, bus) -> {
+            ModTimings modTimings = timings.computeIfAbsent(modid, k -> new ModTimings());
+            hook(bus, modTimings, FMLConstructModEvent.class, Phase.CONSTRUCT);
+            hook(bus, modTimings, FMLCommonSetupEvent.class, Phase.COMMON_SETUP);
+            hook(bus, modTimings, FMLClientSetupEvent.class, Phase.SIDED_SETUP);
+            hook(bus, modTimings, FMLDedicatedServerSetupEvent.class, Phase.SIDED_SETUP);
+            hook(bus, modTimings, InterModEnqueueEvent.class, Phase.ENQUEUE_IMC);
+            hook(bus, modTimings, InterModProcessEvent.class, Phase.PROCESS_IMC);
+            hook(bus, modTimings, FMLLoadCompleteEvent.class, Phase.LOAD_COMPLETE);
+        });
+
+        // Отложенные задачи завершения загрузки выполняются после обработчиков всех модов
+        ownBus.addListener(EventPriority.LOWEST, true, FMLLoadCompleteEvent.class,
+            event -> event.enqueueWork(this::finish));
+
+        samplesByMod = new long[attribution.getModCount()][PHASES.length];
+        running = true;
+        samplerThread = new Thread(this::sampleLoop, "conflict-mediator-startup-sampler");
+        samplerThread.setDaemon(true);
+        samplerThread.start();
+        LOGGER.info("Профилировщик запуска включен, интервал сэмплирования {} мс", INTERVAL_MS);
+    }
+
+    private <T extends Event> void hook(IEventBus bus, ModTimings modTimings, Class<T> type, Phase phase) {
+        bus.addListener(EventPriority.HIGHEST, true, type, event -> {
+            advancePhase(phase);
+            modTimings.begin(phase);
+        });
+        bus.addListener(EventPriority.LOWEST, true, type, event -> modTimings.end(phase));
+    }
+
+    private void advancePhase(Phase phase) {
+        if (phase.ordinal() > currentPhase.ordinal()) {
+            currentPhase = phase;
+        }
+    }
+
+    /**
+     * Обертка для задач enqueueWork, учитывающая их время на счету мода
+     */
+    public Runnable timeWork(String modid, Runnable task) {
+        if (!ENABLED) return task;
+        ModTimings modTimings = timings.computeIfAbsent(modid, k -> new ModTimings());
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                modTimings.addDeferred(System.nanoTime() - start);
+            }
+        };
+    }
+
+    private void sampleLoop() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long[] threadIds = new long[0];
+        long nextRefresh = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            if (now >= nextRefresh) {
+                threadIds = findLoadingThreads(threadBean);
+                nextRefresh = now + THREAD_REFRESH_NANOS;
+            }
+
+            if (threadIds.length > 0) {
+                ThreadInfo[] infos = threadBean.getThreadInfo(threadIds, MAX_DEPTH);
+                synchronized (sampleLock) {
+                    // После остановки состояние принадлежит finish()
+                    if (!running) return;
+                    for (ThreadInfo info : infos) {
+                        // Учитываем только потоки, занятые работой
+                        if (info != null && info.getThreadState() == Thread.State.RUNNABLE) {
+                            recordSample(info);
+                        }
+                    }
+                }
+            }
+
+            try {
+                Thread.sleep(INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private long[] findLoadingThreads(ThreadMXBean threadBean) {
+        ThreadInfo[] infos = threadBean.getThreadInfo(threadBean.getAllThreadIds(), 0);
+        long[] ids = new long[infos.length];
+        int count = 0;
+        for (ThreadInfo info : infos) {
+            if (info != null && isLoadingThread(info.getThreadName())) {
+                ids[count++] = info.getThreadId();
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static boolean isLoadingThread(String name) {
+        return name.startsWith("modloading-worker") || name.equals("main") || name.equals("Render thread");
+    }
+
+    private void recordSample(ThreadInfo info) {
+        StackTraceElement[] stack = info.getStackTrace();
+        if (stack.length == 0) return;
+        totalSamples++;
+
+        // Сэмпл принадлежит самому внутреннему кадру, который относится к моду вне платформы
+        int owner = ModAttribution.UNKNOWN;
+        for (StackTraceElement frame : stack) {
+            int index = attribution.modIndexOf(frame.getClassName());
+            if (index != ModAttribution.UNKNOWN && !attribution.isPlatform(index)) {
+                owner = index;
+                break;
+            }
+        }
+        if (owner != ModAttribution.UNKNOWN && owner < samplesByMod.length) {
+            samplesByMod[owner][currentPhase.ordinal()]++;
+        } else {
+            unattributedSamples++;
+        }
+
+        // Ключ: имя потока, владелец, затем кадры от корня к вершине
+        int[] ids = probe.ids;
+        String threadName = info.getThreadName();
+        ids[0] = frames.internString(threadName.startsWith("modloading-worker") ? "modloading-worker" : threadName);
+        ids[1] = owner;
+        int length = 2;
+        for (int i = stack.length - 1; i >= 0; i--) {
+            ids[length++] = frames.internFrame(stack[i]);
+        }
+        probe.reset(length);
+        long[] count = collapsedStacks.get(probe);
+        if (count == null) {
+            collapsedStacks.put(new StackKey(Arrays.copyOf(ids, length), length), count = new long[1]);
+        }
+        count[0]++;
+    }
+
+    /**
+     * Остановка профилировщика и запись отчетов
+     */
+    public void finish() {
+        if (!running) return;
+        try {
+            // Сэмплер проверяет флаг под блокировкой, поэтому после выхода из блока
+            // он больше не изменяет состояние, даже если join не дождался потока
+            synchronized (sampleLock) {
+                running = false;
+            }
+            samplerThread.interrupt();
+            samplerThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (sampleLock) {
+            writeReports();
+        }
+    }
+
+    private void writeReports() {
+        long totalNanos = System.nanoTime() - startNanos;
+        List<ModReport> reports = buildReports();
+
+        LOGGER.info("Загрузка модов заняла {} мс, сэмплов: {}", totalNanos / 1_000_000, totalSamples);
+        for (int i = 0; i < Math.min(10, reports.size()); i++) {
+            ModReport report = reports.get(i);
+            LOGGER.info("  {}. {} - {} мс", i + 1, report.modid, report.rankMillis());
+        }
+
+        try {
+            Files.createDirectories(REPORT_FILE.getParent());
+            writeReport(reports, totalNanos);
+            writeCollapsed();
+            LOGGER.info("Профиль запуска сохранен: {}, {}", REPORT_FILE, COLLAPSED_FILE);
+        } catch (IOException e) {
+            LOGGER.error("Ошибка при сохранении профиля запуска", e);
+        }
+    }
+
+    private List<ModReport> buildReports() {
+        Map<String, ModReport> reports = new HashMap<>();
+        for (Map.Entry<String, ModTimings> entry : timings.entrySet()) {
+            reports.computeIfAbsent(entry.getKey(), ModReport::new).timings = entry.getValue();
+        }
+        for (int i = 0; i < samplesByMod.length; i++) {
+            long[] samples = samplesByMod[i];
+            if (Arrays.stream(samples).sum() > 0) {
+                reports.computeIfAbsent(attribution.modId(i), ModReport::new).samples = samples;
+            }
+        }
+
+        List<ModReport> ranked = new ArrayList<>(reports.values());
+        ranked.sort(Comparator.comparingLong(ModReport::rankMillis).reversed());
+        return ranked;
+    }
+
+    private void writeReport(List<ModReport> reports, long totalNanos) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(REPORT_FILE)) {
+            writer.write(String.format("Conflict Mediator - профиль запуска%n"));
+            writer.write(String.format("Всего: %d мс, сэмплов: %d (без владельца: %d), интервал: %d мс%n",
+                totalNanos / 1_000_000, totalSamples, unattributedSamples, INTERVAL_MS));
+            writer.write(String.format("Фазы - время обработчиков событий мода (мс); сэмплы - оценка CPU (сэмплы x интервал, мс);%n"));
+            writer.write(String.format("ранг = время обработчиков + сэмплы фазы construct (конструктор мода не замеряется напрямую)%n"));
+            writer.write(String.format("construct - только моды, сконструированные после медиатора: шины более ранних модов%n"));
+            writer.write(String.format("создаются до подписки, их время видно лишь в сэмплах%n%n"));
+
+            StringBuilder header = new StringBuilder(String.format("%-4s %-32s %10s", "#", "мод", "ранг"));
+            for (Phase phase : PHASES) {
+                header.append(String.format(" %14s", phase.getLabel()));
+            }
+            header.append(String.format(" %10s%n", "сэмплы"));
+            writer.write(header.toString());
+
+            int position = 1;
+            for (ModReport report : reports) {
+                StringBuilder line = new StringBuilder(String.format("%-4d %-32s %10d",
+                    position++, report.modid, report.rankMillis()));
+                for (Phase phase : PHASES) {
+                    line.append(String.format(" %14d", report.phaseMillis(phase)));
+                }
+                line.append(String.format(" %10d%n", report.sampledMillis()));
+                writer.write(line.toString());
+            }
+        }
+    }
+
+    private void writeCollapsed() throws IOException {
+        // Кадры различаются номером строки, а в свернутом стеке - только классом и методом
+        Map<String, Long> collapsed = new HashMap<>();
+        StringBuilder sb = new StringBuilder(4096);
+        for (Map.Entry<StackKey, long[]> entry : collapsedStacks.entrySet()) {
+            int[] ids = entry.getKey().ids;
+            int owner = ids[1];
+            sb.setLength(0);
+            sb.append(frames.getString(ids[0]));
+            sb.append(';').append(owner == ModAttribution.UNKNOWN ? "[unattributed]" : "[" + attribution.modId(owner) + "]");
+            for (int i = 2; i < entry.getKey().length; i++) {
+                StackTraceElement frame = frames.toElement(ids[i]);
+                sb.append(';').append(frame.getClassName()).append('.').append(frame.getMethodName());
+            }
+            collapsed.merge(sb.toString(), entry.getValue()[0], Long::sum);
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(COLLAPSED_FILE)) {
+            for (Map.Entry<String, Long> entry : collapsed.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write(' ');
+                writer.write(Long.toString(entry.getValue()));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Стек сэмпла как последовательность идентификаторов
+     */
+    private static final class StackKey {
+        final int[] ids;
+        int length;
+        int hash;
+
+        StackKey(int[] ids, int length) {
+            this.ids = ids;
+            reset(length);
+        }
+
+        void reset(int length) {
+            this.length = length;
+            int h = 1;
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + ids[i];
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StackKey other && hash == other.hash
+                && Arrays.equals(ids, 0, length, other.ids, 0, other.length);
+        }
+    }
+
+    /**
+     * Замеры одного мода
+     */
+    private static final class ModTimings {
+        private final long[] phaseStart = new long[PHASES.length];
+        private final long[] phaseNanos = new long[PHASES.length];
+        private volatile long deferredNanos = 0;
+
+        void begin(Phase phase) {
+            phaseStart[phase.ordinal()] = System.nanoTime();
+        }
+
+        void end(Phase phase) {
+            long start = phaseStart[phase.ordinal()];
+            if (start != 0) {
+                phaseNanos[phase.ordinal()] += System.nanoTime() - start;
+                phaseStart[phase.ordinal()] = 0;
+            }
+        }
+
+        synchronized void addDeferred(long nanos) {
+            deferredNanos += nanos;
+        }
+
+        long phaseNanos(Phase phase) {
+            return phase == Phase.DEFERRED_WORK ? deferredNanos : phaseNanos[phase.ordinal()];
+        }
+    }
+
+    /**
+     * Строка отчета
+     */
+    private static final class ModReport {
+        final String modid;
+        ModTimings timings;
+        long[] samples;
+
+        ModReport(String modid) {
+            this.modid = modid;
+        }
+
+        long phaseMillis(Phase phase) {
+            return timings == null ? 0 : timings.phaseNanos(phase) / 1_000_000;
+        }
+
+        long sampledMillis() {
+            return samples == null ? 0 : Arrays.stream(samples).sum() * INTERVAL_MS;
+        }
+
+        long rankMillis() {
+            long total = 0;
+            for (Phase phase : PHASES) {
+                total += phaseMillis(phase);
+            }
+            if (samples != null) {
+                total += samples[Phase.CONSTRUCT.ordinal()] * INTERVAL_MS;
+            }
+            return total;
+        }
+    }
+}
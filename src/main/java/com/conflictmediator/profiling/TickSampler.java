@@ -0,0 +1,399 @@
+package com.conflictmediator.profiling;
+
+import com.conflictmediator.analysis.DetectedConflict;
+import com.conflictmediator.analysis.ModAttribution;
+import com.conflictmediator.core.ErrorInterceptor;
+import net.minecraft.server.MinecraftServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сэмплер времени тика сервера по модам
+ *
+ * Периодически снимает стек серверного потока и приписывает сэмпл модам через
+ * {@link ModAttribution}. Гистограммы хранятся в заранее выделенных массивах:
+ * собственное время мода (самый внутренний кадр мода), включительное время
+ * (мод есть в стеке), совместное присутствие пар модов и чередование пар
+ * (кадры одного мода встречаются по обе стороны кадров другого).
+ * Пары, почти всегда чередующиеся в горячих стеках, помечаются как подозрение
+ * на конфликт производительности. Счетчики пар хранятся в разреженной таблице с
+ * открытой адресацией: встречается лишь малая часть из modCount² возможных пар.
+ */
+public class TickSampler {
+    private static final Logger LOGGER = LogManager.getLogger();
+    public static final boolean ENABLED = Boolean.getBoolean("conflictmediator.tickSampler");
+    private static final long INTERVAL_MS = Long.getLong("conflictmediator.tickSampler.intervalMs", 5L);
+    private static final long EVALUATE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    // Пара подозрительна, если чередуется в 90% сэмплов менее активного мода
+    // и присутствует хотя бы в 5% всех сэмплов
+    private static final double INTERLEAVE_RATIO = 0.9;
+    private static final double HOT_SHARE = 0.05;
+    private static final long MIN_SAMPLES = 1000;
+    private static final long STOP_TIMEOUT_MS = 1000;
+
+    private final ModAttribution attribution;
+    private final ErrorInterceptor errorInterceptor;
+
+    private int modCount;
+    private long[] selfSamples;
+    private long[] inclusiveSamples;
+    private PairTable pairs;
+    private volatile long totalSamples;
+
+    // Рабочие массивы одного сэмпла, пометки через номер эпохи вместо очистки
+    private int[] modStamp;
+    private int[] lastRun;
+    private int[] runMods;
+    private int[] sampleMods;
+    private int epoch;
+
+    private volatile boolean running = false;
+    private volatile boolean resetRequested = false;
+    private Thread samplerThread;
+
+    public TickSampler(ModAttribution attribution, ErrorInterceptor errorInterceptor) {
+        this.attribution = attribution;
+        this.errorInterceptor = errorInterceptor;
+    }
+
+    /**
+     * Запуск сэмплирования серверного потока
+     */
+    public synchronized void start(MinecraftServer server) {
+        if (running) return;
+        if (samplerThread != null && samplerThread.isAlive()) {
+            // Прежний поток еще пишет в массивы - переиспользовать их нельзя
+            LOGGER.warn("Предыдущий поток сэмплера тиков еще не завершился, запуск пропущен");
+            return;
+        }
+
+        Thread serverThread = server.getRunningThread();
+        modCount = attribution.getModCount();
+        selfSamples = new long[modCount];
+        inclusiveSamples = new long[modCount];
+        pairs = new PairTable(modCount);
+        modStamp = new int[modCount];
+        lastRun = new int[modCount];
+        runMods = new int[256];
+        sampleMods = new int[modCount];
+        totalSamples = 0;
+
+        running = true;
+        samplerThread = new Thread(() -> sampleLoop(serverThread), "conflict-mediator-tick-sampler");
+        samplerThread.setDaemon(true);
+        samplerThread.start();
+        LOGGER.info("Сэмплер тиков сервера запущен, интервал {} мс", INTERVAL_MS);
+    }
+
+    /**
+     * Остановка сэмплирования с ожиданием завершения потока сэмплера
+     */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        samplerThread.interrupt();
+        try {
+            samplerThread.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (samplerThread.isAlive()) {
+            LOGGER.warn("Поток сэмплера тиков не завершился за {} мс", STOP_TIMEOUT_MS);
+        }
+        LOGGER.info("Сэмплер тиков сервера остановлен, сэмплов: {}", totalSamples);
+    }
+
+    /**
+     * Сброс накопленной статистики (выполняется потоком сэмплера)
+     */
+    public void reset() {
+        resetRequested = true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void sampleLoop(Thread serverThread) {
+        long nextEvaluation = System.nanoTime() + EVALUATE_NANOS;
+        while (running && serverThread.isAlive()) {
+            if (resetRequested) {
+                clear();
+                resetRequested = false;
+            }
+
+            if (serverThread.getState() == Thread.State.RUNNABLE) {
+                recordSample(serverThread.getStackTrace());
+            }
+
+            if (System.nanoTime() >= nextEvaluation) {
+                evaluatePairs();
+                nextEvaluation = System.nanoTime() + EVALUATE_NANOS;
+            }
+
+            try {
+                Thread.sleep(INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void clear() {
+        Arrays.fill(selfSamples, 0);
+        Arrays.fill(inclusiveSamples, 0);
+        pairs.clear();
+        totalSamples = 0;
+    }
+
+    private void recordSample(StackTraceElement[] stack) {
+        if (stack.length == 0) return;
+        int stamp = ++epoch;
+        int distinct = 0;
+        int runs = 0;
+        int previous = ModAttribution.UNKNOWN;
+        int self = ModAttribution.UNKNOWN;
+
+        // Кадры от внутреннего к внешнему, последовательные кадры одного мода - один прогон
+        for (StackTraceElement frame : stack) {
+            int mod = attribution.modIndexOf(frame.getClassName());
+            if (mod == ModAttribution.UNKNOWN || mod >= modCount || attribution.isPlatform(mod) || mod == previous) {
+                continue;
+            }
+            previous = mod;
+            if (self == ModAttribution.UNKNOWN) self = mod;
+
+            if (modStamp[mod] != stamp) {
+                modStamp[mod] = stamp;
+                sampleMods[distinct++] = mod;
+            } else {
+                // Мод вернулся в стек: все моды между его прогонами чередуются с ним
+                for (int r = lastRun[mod] + 1; r < runs; r++) {
+                    markInterleaved(mod, runMods[r], stamp);
+                }
+            }
+            if (runs < runMods.length) {
+                runMods[runs] = mod;
+                lastRun[mod] = runs++;
+            }
+        }
+
+        totalSamples++;
+        if (self == ModAttribution.UNKNOWN) return;
+        selfSamples[self]++;
+        for (int i = 0; i < distinct; i++) {
+            int a = sampleMods[i];
+            inclusiveSamples[a]++;
+            for (int j = i + 1; j < distinct; j++) {
+                pairs.addTogether(pairs.slot(a, sampleMods[j]));
+            }
+        }
+    }
+
+    private void markInterleaved(int a, int b, int stamp) {
+        if (a == b) return;
+        pairs.markInterleaved(pairs.slot(a, b), stamp);
+    }
+
+    private void evaluatePairs() {
+        List<DetectedConflict> conflicts = new ArrayList<>();
+        for (SuspectedPair pair : findSuspectedPairs()) {
+            if (!pairs.markReported(pair.modIndex1, pair.modIndex2)) continue;
+            conflicts.add(new DetectedConflict(
+                DetectedConflict.ConflictType.PERFORMANCE,
+                pair.mod1,
+                pair.mod2,
+                String.format("Моды постоянно чередуются в горячих стеках тика (%.1f%% сэмплов)", pair.share * 100),
+                "Обнаружено сэмплером тиков сервера"
+            ));
+        }
+        if (!conflicts.isEmpty()) {
+            errorInterceptor.reportConflicts(conflicts, "Сэмплер тиков сервера");
+        }
+    }
+
+    /**
+     * Моды с наибольшим собственным временем в тике
+     */
+    public List<ModShare> getTopMods(int limit) {
+        long total = totalSamples;
+        List<ModShare> result = new ArrayList<>();
+        if (total == 0 || selfSamples == null) return result;
+
+        for (int i = 0; i < modCount; i++) {
+            if (inclusiveSamples[i] > 0) {
+                result.add(new ModShare(attribution.modId(i),
+                    (double) selfSamples[i] / total, (double) inclusiveSamples[i] / total));
+            }
+        }
+        result.sort((a, b) -> Double.compare(b.selfShare, a.selfShare));
+        return result.subList(0, Math.min(limit, result.size()));
+    }
+
+    /**
+     * Пары модов, подозреваемые в конфликте производительности
+     */
+    public List<SuspectedPair> findSuspectedPairs() {
+        long total = totalSamples;
+        List<SuspectedPair> result = new ArrayList<>();
+        PairTable table = pairs;
+        if (total < MIN_SAMPLES || table == null) return result;
+
+        // Снимок слотов берется один раз: поток сэмплера может расширить таблицу
+        PairTable.Slots slots = table.slots;
+        for (int i = 0; i < slots.keys.length; i++) {
+            long key = slots.keys[i];
+            if (key == PairTable.EMPTY) continue;
+            int a = (int) (key >>> 32);
+            int b = (int) key;
+            long together = slots.together[i];
+            if ((double) together / total < HOT_SHARE) continue;
+            long base = Math.min(inclusiveSamples[a], inclusiveSamples[b]);
+            if (base > 0 && (double) slots.interleaved[i] / base >= INTERLEAVE_RATIO) {
+                result.add(new SuspectedPair(a, b, attribution.modId(a), attribution.modId(b),
+                    (double) together / total));
+            }
+        }
+        result.sort((x, y) -> Double.compare(y.share, x.share));
+        return result;
+    }
+
+    public long getTotalSamples() {
+        return totalSamples;
+    }
+
+    /**
+     * Разреженная таблица счетчиков пар модов с открытой адресацией
+     * Изменяется только потоком сэмплера; читатели берут согласованный снимок слотов.
+     */
+    private static final class PairTable {
+        static final long EMPTY = -1L;
+        private static final int INITIAL_CAPACITY = 256;
+
+        /**
+         * Массивы слотов, заменяемые целиком при расширении
+         */
+        static final class Slots {
+            final long[] keys;
+            final long[] together;
+            final long[] interleaved;
+            final int[] stamps;
+            final boolean[] reported;
+            final int mask;
+
+            Slots(int capacity) {
+                keys = new long[capacity];
+                Arrays.fill(keys, EMPTY);
+                together = new long[capacity];
+                interleaved = new long[capacity];
+                stamps = new int[capacity];
+                reported = new boolean[capacity];
+                mask = capacity - 1;
+            }
+        }
+
+        volatile Slots slots;
+        private int size;
+        // Вместимость не превышает число возможных пар, чтобы в таблице всегда был пустой слот
+        private final int maxCapacity;
+
+        PairTable(int modCount) {
+            long pairCount = (long) modCount * (modCount - 1) / 2;
+            int limit = Integer.highestOneBit((int) Math.min(pairCount, 1 << 29)) << 1;
+            this.maxCapacity = Math.max(limit, 2);
+            this.slots = new Slots(Math.min(INITIAL_CAPACITY, maxCapacity));
+        }
+
+        /**
+         * Слот пары (порядок модов не важен), при отсутствии пара добавляется
+         */
+        int slot(int a, int b) {
+            long key = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+            Slots current = slots;
+            int i = find(current, key);
+            if (current.keys[i] == EMPTY) {
+                if ((size + 1) * 2 > current.keys.length && current.keys.length < maxCapacity) {
+                    current = grow(current);
+                    i = find(current, key);
+                }
+                current.keys[i] = key;
+                size++;
+            }
+            return i;
+        }
+
+        void addTogether(int slot) {
+            slots.together[slot]++;
+        }
+
+        void markInterleaved(int slot, int stamp) {
+            Slots current = slots;
+            if (current.stamps[slot] != stamp) {
+                current.stamps[slot] = stamp;
+                current.interleaved[slot]++;
+            }
+        }
+
+        /**
+         * Пометка пары как сообщенной, false - если она уже была сообщена
+         */
+        boolean markReported(int a, int b) {
+            int i = slot(a, b);
+            Slots current = slots;
+            if (current.reported[i]) return false;
+            current.reported[i] = true;
+            return true;
+        }
+
+        /**
+         * Сброс счетчиков; сообщенные пары сохраняются
+         */
+        void clear() {
+            Slots current = slots;
+            Arrays.fill(current.together, 0);
+            Arrays.fill(current.interleaved, 0);
+        }
+
+        private static int find(Slots current, long key) {
+            int i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & current.mask;
+            while (current.keys[i] != EMPTY && current.keys[i] != key) {
+                i = (i + 1) & current.mask;
+            }
+            return i;
+        }
+
+        private Slots grow(Slots old) {
+            Slots grown = new Slots(Math.min(old.keys.length * 2, maxCapacity));
+            for (int i = 0; i < old.keys.length; i++) {
+                long key = old.keys[i];
+                if (key == EMPTY) continue;
+                int j = find(grown, key);
+                grown.keys[j] = key;
+                grown.together[j] = old.together[i];
+                grown.interleaved[j] = old.interleaved[i];
+                grown.stamps[j] = old.stamps[i];
+                grown.reported[j] = old.reported[i];
+            }
+            slots = grown;
+            return grown;
+        }
+    }
+
+    /**
+     * Доля сэмплов мода
+     */
+    public record ModShare(String modid, double selfShare, double inclusiveShare) {
+    }
+
+    /**
+     * Подозрительная пара модов
+     */
+    public record SuspectedPair(int modIndex1, int modIndex2, String mod1, String mod2, double share) {
+    }
+}
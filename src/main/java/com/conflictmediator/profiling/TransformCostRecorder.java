@@ -0,0 +1,127 @@
+package com.conflictmediator.profiling;
+
+import com.conflictmediator.core.MixinDisabler;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Учет стоимости трансформации классов по Mixin
+ *
+ * Счетчики построены на {@link LongAdder}, поэтому параллельная загрузка классов
+ * из разных потоков не соперничает за одну ячейку. При завершении загрузки
+ * накопленные данные выгружаются в ранжированный отчет.
+ *
+ * Время Mixin - собственное время применения к классу, поделенное поровну между его Mixin
+ * (оценка). Трансформеры ModLauncher и coremods точки расширения для замера времени не имеют,
+ * поэтому для них учитывается число классов с Mixin, которые они тоже изменили.
+ */
+public class TransformCostRecorder {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Path REPORT_FILE = FMLPaths.GAMEDIR.get().resolve("logs").resolve("conflict_mediator_transforms.txt");
+
+    private final MixinDisabler mixinDisabler;
+    private final Map<String, TransformStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> transformerClasses = new ConcurrentHashMap<>();
+
+    public TransformCostRecorder(MixinDisabler mixinDisabler) {
+        this.mixinDisabler = mixinDisabler;
+    }
+
+    /**
+     * Учет применения Mixin к одному классу
+     */
+    public void record(String mixin, long bytesIn, long bytesOut, long nanos) {
+        TransformStats entry = stats.get(mixin);
+        if (entry == null) {
+            entry = stats.computeIfAbsent(mixin, TransformStats::new);
+        }
+        entry.classes.increment();
+        entry.bytesIn.add(bytesIn);
+        entry.bytesOut.add(bytesOut);
+        entry.nanos.add(nanos);
+    }
+
+    /**
+     * Учет класса, измененного трансформером ModLauncher
+     */
+    public void recordTransformer(String transformer) {
+        LongAdder classes = transformerClasses.get(transformer);
+        if (classes == null) {
+            classes = transformerClasses.computeIfAbsent(transformer, k -> new LongAdder());
+        }
+        classes.increment();
+    }
+
+    /**
+     * Выгрузка отчета, отсортированного по затраченному времени
+     */
+    public void flush() {
+        List<TransformStats> ranked = new ArrayList<>(stats.values());
+        ranked.sort(Comparator.comparingLong((TransformStats entry) -> entry.nanos.sum()).reversed());
+
+        long totalNanos = 0;
+        for (TransformStats entry : ranked) {
+            totalNanos += entry.nanos.sum();
+        }
+        LOGGER.info("Трансформация классов: {} Mixin, {} мс собственного времени (доли Mixin - оценка), "
+            + "{} трансформеров ModLauncher без замера времени", ranked.size(), totalNanos / 1_000_000, transformerClasses.size());
+
+        try {
+            Files.createDirectories(REPORT_FILE.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(REPORT_FILE)) {
+                writer.write(String.format("Conflict Mediator - стоимость трансформации классов%n"));
+                writer.write(String.format("Всего: %d мс; [отключен] - Mixin уже в черном списке%n", totalNanos / 1_000_000));
+                writer.write(String.format("мс (оценка) - собственное время применения к классу, поделенное поровну%n"));
+                writer.write(String.format("между его Mixin; вложенные загрузки классов вычтены%n%n"));
+                writer.write(String.format("%-4s %-72s %12s %8s %12s %12s%n",
+                    "#", "Mixin", "мс (оценка)", "классов", "байт до", "байт после"));
+                int position = 1;
+                for (TransformStats entry : ranked) {
+                    String name = mixinDisabler.isMixinDisabled(entry.name) ? entry.name + " [отключен]" : entry.name;
+                    writer.write(String.format("%-4d %-72s %12.2f %8d %12d %12d%n",
+                        position++, name, entry.nanos.sum() / 1e6,
+                        entry.classes.sum(), entry.bytesIn.sum(), entry.bytesOut.sum()));
+                }
+
+                if (!transformerClasses.isEmpty()) {
+                    writer.write(String.format("%nТрансформеры ModLauncher/coremods (время не замеряется, только классы с Mixin):%n"));
+                    List<Map.Entry<String, LongAdder>> transformers = new ArrayList<>(transformerClasses.entrySet());
+                    transformers.sort(Comparator.comparingLong((Map.Entry<String, LongAdder> entry) -> entry.getValue().sum()).reversed());
+                    for (Map.Entry<String, LongAdder> entry : transformers) {
+                        writer.write(String.format("     %-72s %8d%n", entry.getKey(), entry.getValue().sum()));
+                    }
+                }
+            }
+            LOGGER.info("Отчет о трансформации классов сохранен: {}", REPORT_FILE);
+        } catch (IOException e) {
+            LOGGER.error("Ошибка при сохранении отчета о трансформации классов", e);
+        }
+    }
+
+    /**
+     * Счетчики одного Mixin
+     */
+    private static final class TransformStats {
+        final String name;
+        final LongAdder classes = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        TransformStats(String name) {
+            this.name = name;
+        }
+    }
+}